@@ -18,6 +18,10 @@ mainDependencies {
    api("us.ihmc:ihmc-native-library-loader:2.0.2")
 }
 
+testDependencies {
+   api("org.openjdk.jol:jol-core:0.17")
+}
+
 app.entrypoint("ihmc-realtime", "us.ihmc.realtime.TestBarrierSchedulerCyclic")
 
 val appDirectory = "/home/shadylady/IHMCRealtime"
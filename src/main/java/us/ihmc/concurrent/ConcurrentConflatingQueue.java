@@ -0,0 +1,183 @@
+package us.ihmc.concurrent;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Queue that keeps only the latest value per key, for streams of setpoints or commands where stale
+ * values can be dropped. Lock-free and garbage-free.
+ * <p>
+ * Keys are small integers in [0, numberOfKeys). Every key has three preallocated objects that are used
+ * like in {@link ConcurrentCopier}: one for the producer to write, one holding the latest value and one
+ * for the consumer to read. A newer value for a key that is still pending replaces the pending value.
+ * The consumer gets every pending key once, in order of the first commit since its last poll. Memory is
+ * bounded by the number of keys, independent of the message rate.
+ * <p>
+ * The state of a key is packed in an integer: the index of the latest object in bits 0-1, the index of
+ * the object being read in bits 2-3 and a pending flag in bit 4. The order of pending keys is kept in a
+ * {@link LongRingBuffer}; a key is only queued when its pending flag is set, so the queue never
+ * overflows.
+ * <p>
+ * Only one producer and one consumer are supported.
+ *
+ * @param <T> Class in queue
+ */
+public class ConcurrentConflatingQueue<T>
+{
+   private static final int NONE = 3;
+   private static final int LATEST_MASK = 0x3;
+   private static final int READING_SHIFT = 2;
+   private static final int READING_MASK = 0x3 << READING_SHIFT;
+   private static final int PENDING = 0x10;
+   private static final int INITIAL_STATE = NONE | (NONE << READING_SHIFT);
+
+   private final T[] buffer;
+   private final AtomicIntegerArray states;
+   private final LongRingBuffer pendingKeys;
+   private final int numberOfKeys;
+
+   /*
+    * Producer variables
+    */
+   private int writeKey = -1;
+   private int writeIndex = -1;
+
+   /*
+    * Consumer variables
+    */
+   private int lastPolledKey = -1;
+
+   /**
+    * @param classBuilder Builder for the objects in the queue
+    * @param numberOfKeys Number of keys, keys are in [0, numberOfKeys)
+    */
+   @SuppressWarnings("unchecked")
+   public ConcurrentConflatingQueue(Builder<? extends T> classBuilder, int numberOfKeys)
+   {
+      if (numberOfKeys < 1)
+      {
+         throw new IllegalArgumentException("Number of keys < 1");
+      }
+
+      this.numberOfKeys = numberOfKeys;
+
+      buffer = (T[]) new Object[3 * numberOfKeys];
+      for (int i = 0; i < buffer.length; i++)
+      {
+         buffer[i] = classBuilder.newInstance();
+      }
+
+      states = new AtomicIntegerArray(numberOfKeys);
+      for (int i = 0; i < numberOfKeys; i++)
+      {
+         states.set(i, INITIAL_STATE);
+      }
+
+      pendingKeys = new LongRingBuffer(numberOfKeys);
+   }
+
+   /**
+    * Get an object to write the next value for key to. Call {@link #commit()} to publish it.
+    *
+    * @param key Key in [0, numberOfKeys)
+    * @return Object to write to
+    */
+   public T getCopyForWriting(int key)
+   {
+      if (key < 0 || key >= numberOfKeys)
+      {
+         throw new IllegalArgumentException("Key " + key + " is not in [0, " + numberOfKeys + ")");
+      }
+
+      int state = states.getAcquire(key);
+      int latest = state & LATEST_MASK;
+      int reading = (state & READING_MASK) >> READING_SHIFT;
+
+      // Pick the object that is neither the latest nor being read
+      int index = 0;
+      while (index == latest || index == reading)
+      {
+         ++index;
+      }
+
+      writeKey = key;
+      writeIndex = index;
+      return buffer[3 * key + index];
+   }
+
+   /**
+    * Publish the object returned by {@link #getCopyForWriting(int)}, replacing the pending value for
+    * its key
+    */
+   public void commit()
+   {
+      if (writeKey < 0)
+      {
+         throw new IllegalStateException("Call getCopyForWriting before commit");
+      }
+
+      int state;
+      do
+      {
+         state = states.get(writeKey);
+      }
+      while (!states.weakCompareAndSetRelease(writeKey, state, (state & READING_MASK) | writeIndex | PENDING));
+
+      // Queue the key if it was not pending yet. The consumer clears the flag after taking the key from
+      // the queue, so every key is queued at most once.
+      if ((state & PENDING) == 0)
+      {
+         pendingKeys.offer(writeKey);
+      }
+
+      writeKey = -1;
+   }
+
+   /**
+    * Get the latest value of the next pending key. The key is available from
+    * {@link #getLastPolledKey()}. The object stays valid until the next poll.
+    *
+    * @return Latest value of the next pending key, null if no key is pending
+    */
+   public T poll()
+   {
+      int key = (int) pendingKeys.poll(-1);
+      if (key < 0)
+      {
+         return null;
+      }
+
+      // The volatile compare-and-set acquires the latest value and releases the slot read before to the producer
+      int state;
+      int latest;
+      do
+      {
+         state = states.get(key);
+         latest = state & LATEST_MASK;
+      }
+      while (!states.weakCompareAndSetVolatile(key, state, latest | (latest << READING_SHIFT)));
+
+      lastPolledKey = key;
+      return buffer[3 * key + latest];
+   }
+
+   /**
+    * @return Key of the value returned by the last successful {@link #poll()}, -1 if nothing has been polled
+    */
+   public int getLastPolledKey()
+   {
+      return lastPolledKey;
+   }
+
+   /**
+    * @return true if no key is pending. Call from the consumer thread.
+    */
+   public boolean isEmpty()
+   {
+      return pendingKeys.isEmpty();
+   }
+
+   public int getNumberOfKeys()
+   {
+      return numberOfKeys;
+   }
+}
@@ -17,7 +17,62 @@
  */
 package us.ihmc.concurrent;
 
-import java.util.concurrent.atomic.AtomicInteger;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/*
+ * The writer fields, the shared state and the reader fields are separated by padding classes, see
+ * ConcurrentRingBuffer. All are longs, so the JVM cannot place a smaller field in a gap next to them.
+ */
+abstract class ConcurrentCopierLeftPadding
+{
+   long p00, p01, p02, p03, p04, p05, p06, p07;
+}
+
+abstract class ConcurrentCopierWriterFields extends ConcurrentCopierLeftPadding
+{
+   long currentlyBeingWritten = -1;
+
+   /*
+    * Metrics, only written by the writer
+    */
+   long commitCount;
+}
+
+abstract class ConcurrentCopierWriterPadding extends ConcurrentCopierWriterFields
+{
+   long p10, p11, p12, p13, p14, p15, p16, p17;
+}
+
+abstract class ConcurrentCopierState extends ConcurrentCopierWriterPadding
+{
+   /*
+    * State bitmask integer
+    * 
+    * NEXT_OBJECT_TO_READ_MASK : nextObjectToRead
+    * CURRENTLY_BEING_READ_MASK : currentlyBeingRead
+    */
+   volatile long state;
+}
+
+abstract class ConcurrentCopierStatePadding extends ConcurrentCopierState
+{
+   long p20, p21, p22, p23, p24, p25, p26, p27;
+}
+
+abstract class ConcurrentCopierReaderFields extends ConcurrentCopierStatePadding
+{
+   /*
+    * Metrics, only written by the reader
+    */
+   long readCount;
+   long staleReadCount;
+}
+
+abstract class ConcurrentCopierRightPadding extends ConcurrentCopierReaderFields
+{
+   long p30, p31, p32, p33, p34, p35, p36, p37;
+}
 
 /**
  * 
@@ -38,25 +93,34 @@ import java.util.concurrent.atomic.AtomicInteger;
  * @param <T> object
  *
  */
-public class ConcurrentCopier<T>
+public class ConcurrentCopier<T> extends ConcurrentCopierRightPadding
 {
    private static final int NEXT_OBJECT_TO_READ_MASK = 0xC;
    private static final int CURRENTLY_BEING_READ_MASK = 0x3;
    private static final int INITIAL_STATE = 0xC;
    
+   private static final VarHandle STATE;
+   private static final VarHandle COMMIT_COUNT;
+   private static final VarHandle READ_COUNT;
+   private static final VarHandle STALE_READ_COUNT;
+   static
+   {
+      try
+      {
+         MethodHandles.Lookup lookup = MethodHandles.lookup();
+         STATE = lookup.findVarHandle(ConcurrentCopierState.class, "state", long.class);
+         COMMIT_COUNT = lookup.findVarHandle(ConcurrentCopierWriterFields.class, "commitCount", long.class);
+         READ_COUNT = lookup.findVarHandle(ConcurrentCopierReaderFields.class, "readCount", long.class);
+         STALE_READ_COUNT = lookup.findVarHandle(ConcurrentCopierReaderFields.class, "staleReadCount", long.class);
+      }
+      catch (ReflectiveOperationException e)
+      {
+         throw new ExceptionInInitializerError(e);
+      }
+   }
    
    public final T[] buffer;
    
-   private int currentlyBeingWritten = -1;
-   
-   /*
-    * State bitmask integer
-    * 
-    * NEXT_OBJECT_TO_READ_MASK : nextObjectToRead
-    * CURRENTLY_BEING_READ_MASK : currentlyBeingRead
-    */
-   private final AtomicInteger state = new AtomicInteger(); 
-   
    
    @SuppressWarnings("unchecked")
    public ConcurrentCopier(Builder<? extends T> classBuilder)
@@ -68,32 +132,42 @@ public class ConcurrentCopier<T>
          buffer[i] = classBuilder.newInstance();
       }
       
-      state.set(INITIAL_STATE);
+      state = INITIAL_STATE;
    }
    
    public T getCopyForReading()
    {      
       while(true)
       {
-         int currentState = state.get();
+         // The compare-and-set validates the state, an opaque read is sufficient here
+         long currentState = (long) STATE.getOpaque(this);
          if (currentState == INITIAL_STATE) 
          {
             return null;
          }
          
-         int nextObjectToRead = (currentState & NEXT_OBJECT_TO_READ_MASK) >> 2;
-         int newState = (currentState & NEXT_OBJECT_TO_READ_MASK) | (nextObjectToRead);
-         if(state.compareAndSet(currentState, newState))
+         int nextObjectToRead = (int) (currentState & NEXT_OBJECT_TO_READ_MASK) >> 2;
+         long newState = (currentState & NEXT_OBJECT_TO_READ_MASK) | (nextObjectToRead);
+         
+         // Acquire semantics make the writes to the object before its commit visible. Release semantics
+         // order the reads of the previously read object before it is handed back to the writer
+         if(STATE.weakCompareAndSet(this, currentState, newState))
          {
+            // Metrics are written with opaque stores, a monitor thread can read them at any time
+            READ_COUNT.setOpaque(this, readCount + 1);
+            if ((currentState & CURRENTLY_BEING_READ_MASK) == nextObjectToRead)
+            {
+               STALE_READ_COUNT.setOpaque(this, staleReadCount + 1);
+            }
             return buffer[nextObjectToRead];
          }
       }
    }
    
    // returns an index that is not beingRead or nextToRead
-   private int getNextWriteIndex(int currentState)
+   private int getNextWriteIndex(long currentState)
    {
-      switch(currentState)
+      switch((int) currentState)
       {
       case 0x0:
          return 0x1;
@@ -123,8 +197,8 @@ public class ConcurrentCopier<T>
    
    public T getCopyForWriting()
    {
-      currentlyBeingWritten = getNextWriteIndex(state.get());
-      return buffer[currentlyBeingWritten];
+      currentlyBeingWritten = getNextWriteIndex((long) STATE.getAcquire(this));
+      return buffer[(int) currentlyBeingWritten];
    }
    
    
@@ -136,12 +210,39 @@ public class ConcurrentCopier<T>
       // Updating nextObjectToRead(state & NEXT_OBJECT_TO_READ_MASK) to currentlyBeingWritten 
       while(true)
       {
-         int currentState = state.get();
-         int newState = (currentState & CURRENTLY_BEING_READ_MASK) | (currentlyBeingWritten << 2);
-         if(state.compareAndSet(currentState, newState))
+         long currentState = (long) STATE.getOpaque(this);
+         long newState = (currentState & CURRENTLY_BEING_READ_MASK) | (currentlyBeingWritten << 2);
+         
+         // Release semantics publish all writes to the object before the new state
+         if(STATE.weakCompareAndSetRelease(this, currentState, newState))
          {
+            COMMIT_COUNT.setOpaque(this, commitCount + 1);
             break;
          }
       }
    }
+
+   /**
+    * @return Number of calls to commit(). Can be called from any thread.
+    */
+   public long getCommitCount()
+   {
+      return (long) COMMIT_COUNT.getOpaque(this);
+   }
+
+   /**
+    * @return Number of calls to getCopyForReading() that returned an object. Can be called from any thread.
+    */
+   public long getReadCount()
+   {
+      return (long) READ_COUNT.getOpaque(this);
+   }
+
+   /**
+    * @return Number of reads that returned the same commit as the previous read. Can be called from any thread.
+    */
+   public long getStaleReadCount()
+   {
+      return (long) STALE_READ_COUNT.getOpaque(this);
+   }
 }
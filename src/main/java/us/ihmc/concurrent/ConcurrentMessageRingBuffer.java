@@ -0,0 +1,259 @@
+package us.ihmc.concurrent;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import us.ihmc.util.PaddedVolatileLong;
+import us.ihmc.util.RealtimeTools;
+
+/**
+ * Concurrent lock-free and garbage-free cyclic buffer of variable length messages stored in a
+ * single direct byte buffer.
+ * <p>
+ * Every message is stored as a record consisting of an 8 byte header (payload length and message
+ * type) followed by the payload, padded to 8 byte alignment. When a record does not fit before the
+ * end of the buffer, a padding record fills the remainder and the message is stored at the start of
+ * the buffer. Only one producer and one consumer are supported.
+ * <p>
+ * Usage:
+ *
+ * <pre>
+ *    // Producer
+ *    int offset = buffer.tryClaim(type, length);
+ *    if(offset >= 0)
+ *    {
+ *       buffer.getBuffer().putDouble(offset, value);
+ *       buffer.commit();
+ *    }
+ *
+ *    // Consumer
+ *    if(buffer.poll())
+ *    {
+ *       while(buffer.read(handler));
+ *       buffer.flush();
+ *    }
+ * </pre>
+ */
+public class ConcurrentMessageRingBuffer
+{
+   public static final int HEADER_LENGTH = 8;
+   public static final int ALIGNMENT = 8;
+   public static final int PADDING_MESSAGE_TYPE = -1;
+
+   private static final int LENGTH_OFFSET = 0;
+   private static final int TYPE_OFFSET = 4;
+
+   /**
+    * Callback for messages read from the buffer. The message is only valid for the duration of the
+    * call, the data is overwritten after the consumer flushes.
+    */
+   public interface MessageHandler
+   {
+      /**
+       * @param type Message type
+       * @param buffer Buffer holding the message. Only use absolute get methods
+       * @param offset Offset of the message payload in buffer
+       * @param length Length of the message payload in bytes
+       */
+      public void onMessage(int type, ByteBuffer buffer, int offset, int length);
+   }
+
+   /*
+    * Producer variables, in bytes
+    */
+   private long writePosition = 0;
+   private long cachedConsumerPosition = 0;
+   private final PaddedVolatileLong commitPosition = new PaddedVolatileLong(0);
+
+   public volatile long p1, p2, p3, p4, p5, p6, p7 = 8L;
+
+   /*
+    * Consumer variables, in bytes
+    */
+   private long readLimit = 0;
+   private long readPosition = 0;
+   private final PaddedVolatileLong consumerPosition = new PaddedVolatileLong(0);
+
+   // More padding
+   public volatile long p8, p9, p10, p11, p12, p13, p14 = 15L;
+
+   private final int capacity;
+   private final int capacityMask;
+   private final int maxMessageLength;
+
+   private final ByteBuffer producerBuffer;
+   private final ByteBuffer consumerBuffer;
+
+   /**
+    * The maximum message length is the largest payload whose record is guaranteed to fit in an empty
+    * buffer, wherever the previous record ended. A record that does not fit before the end of the
+    * buffer needs a padding record of up to its own length minus {@link #ALIGNMENT} bytes, so a record
+    * can take at most (capacity + {@link #ALIGNMENT}) / 2 bytes.
+    *
+    * @param capacity Capacity of the ring buffer in bytes, automatically rounded up to the next power
+    *           of two
+    */
+   public ConcurrentMessageRingBuffer(int capacity)
+   {
+      if (capacity < HEADER_LENGTH)
+      {
+         throw new RuntimeException("Capacity < " + HEADER_LENGTH);
+      }
+
+      this.capacity = RealtimeTools.nextPowerOfTwo(capacity);
+      this.capacityMask = this.capacity - 1;
+      int maxRecordLength = ((this.capacity + ALIGNMENT) / 2) & -ALIGNMENT;
+      this.maxMessageLength = maxRecordLength - HEADER_LENGTH;
+
+      producerBuffer = ByteBuffer.allocateDirect(this.capacity).order(ByteOrder.nativeOrder());
+      consumerBuffer = producerBuffer.duplicate().order(ByteOrder.nativeOrder());
+   }
+
+   private static int align(int length)
+   {
+      return (length + ALIGNMENT - 1) & -ALIGNMENT;
+   }
+
+   /**
+    * Claim space for a message, return -1 if there is no space in the buffer. Write the payload into
+    * {@link #getBuffer()} starting at the returned offset.
+    *
+    * @param type Message type, must be non-negative
+    * @param length Length of the payload in bytes
+    * @return Offset of the payload in {@link #getBuffer()}, or -1 if the buffer is full
+    */
+   public int tryClaim(int type, int length)
+   {
+      if (type < 0)
+      {
+         throw new IllegalArgumentException("Message type < 0");
+      }
+      if (length < 0 || length > maxMessageLength)
+      {
+         throw new IllegalArgumentException("Message length " + length + " outside [0, " + maxMessageLength + "]");
+      }
+
+      int recordLength = align(HEADER_LENGTH + length);
+      int index = (int) (writePosition & capacityMask);
+      int bytesUntilEnd = capacity - index;
+      int padding = recordLength > bytesUntilEnd ? bytesUntilEnd : 0;
+
+      long requiredPosition = writePosition + padding + recordLength;
+      if (requiredPosition - cachedConsumerPosition > capacity)
+      {
+         cachedConsumerPosition = consumerPosition.getAcquire();
+         if (requiredPosition - cachedConsumerPosition > capacity)
+         {
+            return -1;
+         }
+      }
+
+      if (padding > 0)
+      {
+         producerBuffer.putInt(index + LENGTH_OFFSET, padding - HEADER_LENGTH);
+         producerBuffer.putInt(index + TYPE_OFFSET, PADDING_MESSAGE_TYPE);
+         index = 0;
+      }
+
+      producerBuffer.putInt(index + LENGTH_OFFSET, length);
+      producerBuffer.putInt(index + TYPE_OFFSET, type);
+      writePosition = requiredPosition;
+
+      return index + HEADER_LENGTH;
+   }
+
+   /**
+    * @return Buffer to write claimed messages in. Only use absolute put methods.
+    */
+   public ByteBuffer getBuffer()
+   {
+      return producerBuffer;
+   }
+
+   /**
+    * Make all messages claimed using @see{tryClaim} since last commit visible to the consumer
+    */
+   public void commit()
+   {
+      commitPosition.setRelease(writePosition);
+   }
+
+   /**
+    * Get latest data from producer. Run before a sequence of @see{read}
+    *
+    * @return true if there is new data available
+    */
+   public boolean poll()
+   {
+      readLimit = commitPosition.getAcquire();
+
+      if (readPosition < readLimit)
+      {
+         return true;
+      }
+      else
+      {
+         return false;
+      }
+   }
+
+   /**
+    * Reads next message and passes it to the handler. Run @see{poll} to update the read limit.
+    *
+    * @param handler Callback for the message
+    * @return true if a message was read, false if no new data
+    */
+   public boolean read(MessageHandler handler)
+   {
+      while (readPosition < readLimit)
+      {
+         int index = (int) (readPosition & capacityMask);
+         int length = consumerBuffer.getInt(index + LENGTH_OFFSET);
+         int type = consumerBuffer.getInt(index + TYPE_OFFSET);
+
+         readPosition += align(HEADER_LENGTH + length);
+
+         if (type != PADDING_MESSAGE_TYPE)
+         {
+            handler.onMessage(type, consumerBuffer, index + HEADER_LENGTH, length);
+            return true;
+         }
+      }
+
+      return false;
+   }
+
+   /**
+    * Flushes read messages, making their space available for writing. Call after @see{read}
+    */
+   public void flush()
+   {
+      consumerPosition.setRelease(readPosition);
+   }
+
+   /**
+    * @return Capacity of the cyclic buffer in bytes
+    */
+   public long getCapacity()
+   {
+      return this.capacity;
+   }
+
+   /**
+    * @return Maximum payload length of a single message in bytes
+    */
+   public int getMaxMessageLength()
+   {
+      return maxMessageLength;
+   }
+
+   /**
+    * Public function to avoid removal of padding
+    *
+    * @return sum of p
+    */
+   public long avoidPaddingRemoval()
+   {
+      return p1 + p2 + p3 + p4 + p5 + p6 + p7 + p8 + p9 + p10 + p11 + p12 + p13 + p14;
+   }
+}
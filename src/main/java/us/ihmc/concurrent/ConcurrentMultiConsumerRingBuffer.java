@@ -0,0 +1,286 @@
+package us.ihmc.concurrent;
+
+import java.util.Arrays;
+
+import us.ihmc.util.PaddedVolatileLong;
+import us.ihmc.util.RealtimeTools;
+
+/**
+ * Concurrent lock-free and garbage-free implementation of a cyclic buffer with a single producer
+ * and multiple consumers that all see every entry.
+ * <p>
+ * Every consumer thread obtains its own {@link Consumer} from {@link #createConsumer(Consumer...)}
+ * and uses it like the consumer side of {@link ConcurrentRingBuffer}. Each consumer keeps its own
+ * padded sequence. A consumer can depend on other consumers, in which case it only sees entries
+ * that all its dependencies have flushed. This allows building processing pipelines, e.g. a decoder
+ * that fills in an entry before a logger reads it, without copying entries between buffers.
+ * <p>
+ * The producer gates on the slowest consumer at the end of each dependency chain. Create all
+ * consumers before the producer starts writing.
+ *
+ * Based on http://lmax-exchange.github.io/disruptor/
+ *
+ * @param <T> Class in buffer
+ */
+public class ConcurrentMultiConsumerRingBuffer<T>
+{
+   /*
+    * Producer variables
+    */
+   private long writePosition = -1;
+   private long cachedMaxWritePosition = -1;
+   private final PaddedVolatileLong commitPosition = new PaddedVolatileLong(-1);
+
+   public volatile long p1, p2, p3, p4, p5, p6, p7 = 8L;
+
+   /*
+    * Consumers that no other consumer depends on. The producer gates on these.
+    */
+   private volatile ConcurrentMultiConsumerRingBuffer<?>.Consumer[] gatingConsumers = new ConcurrentMultiConsumerRingBuffer<?>.Consumer[0];
+
+   private final int capacity;
+   private final int capacityMask;
+   private final T[] buffer;
+
+   /**
+    * @param classBuilder Helper class to create empty version of T
+    * @param capacity Capacity of the ring buffer, automatically rounded up to the next power of two
+    */
+   @SuppressWarnings("unchecked")
+   public ConcurrentMultiConsumerRingBuffer(Builder<? extends T> classBuilder, int capacity)
+   {
+      if (capacity < 0)
+      {
+         throw new RuntimeException("Capacity < 0");
+      }
+
+      this.capacity = RealtimeTools.nextPowerOfTwo(capacity);
+      this.capacityMask = this.capacity - 1;
+
+      buffer = (T[]) new Object[this.capacity];
+
+      for (int i = 0; i < this.capacity; i++)
+      {
+         buffer[i] = classBuilder.newInstance();
+      }
+   }
+
+   /**
+    * Create a new consumer endpoint. Each consumer thread needs its own consumer. Allocates, call
+    * this during setup before the producer starts writing.
+    *
+    * @param dependencies Consumers that have to flush an entry before the new consumer can read it
+    * @return Consumer for a single thread
+    */
+   public synchronized Consumer createConsumer(ConcurrentMultiConsumerRingBuffer<?>.Consumer... dependencies)
+   {
+      for (int i = 0; i < dependencies.length; i++)
+      {
+         if (dependencies[i].getRingBuffer() != this)
+         {
+            throw new IllegalArgumentException("Dependency belongs to a different ring buffer");
+         }
+      }
+
+      Consumer consumer = new Consumer(dependencies);
+
+      // Consumers that the new consumer depends on are implicitly gated by the new consumer
+      ConcurrentMultiConsumerRingBuffer<?>.Consumer[] currentGatingConsumers = gatingConsumers;
+      ConcurrentMultiConsumerRingBuffer<?>.Consumer[] newGatingConsumers = new ConcurrentMultiConsumerRingBuffer<?>.Consumer[currentGatingConsumers.length + 1];
+      int numberOfGatingConsumers = 0;
+      for (int i = 0; i < currentGatingConsumers.length; i++)
+      {
+         if (!isDependency(currentGatingConsumers[i], dependencies))
+         {
+            newGatingConsumers[numberOfGatingConsumers++] = currentGatingConsumers[i];
+         }
+      }
+      newGatingConsumers[numberOfGatingConsumers++] = consumer;
+
+      gatingConsumers = Arrays.copyOf(newGatingConsumers, numberOfGatingConsumers);
+      return consumer;
+   }
+
+   private static boolean isDependency(ConcurrentMultiConsumerRingBuffer<?>.Consumer consumer, ConcurrentMultiConsumerRingBuffer<?>.Consumer[] dependencies)
+   {
+      for (int i = 0; i < dependencies.length; i++)
+      {
+         if (dependencies[i] == consumer)
+         {
+            return true;
+         }
+      }
+      return false;
+   }
+
+   private T getObject(long position)
+   {
+      return buffer[(int) (position & capacityMask)];
+   }
+
+   private long getMinimumGatingPosition()
+   {
+      ConcurrentMultiConsumerRingBuffer<?>.Consumer[] consumers = gatingConsumers;
+      if (consumers.length == 0)
+      {
+         return -1;
+      }
+
+      long minimum = Long.MAX_VALUE;
+      for (int i = 0; i < consumers.length; i++)
+      {
+         minimum = Math.min(minimum, consumers[i].consumerPosition.getAcquire());
+      }
+      return minimum;
+   }
+
+   /**
+    * Get a new object for writing, return null if there is no space in the buffer
+    *
+    * @return Object for writing
+    */
+   public T next()
+   {
+      ++writePosition;
+      if (writePosition >= cachedMaxWritePosition)
+      {
+         cachedMaxWritePosition = getMinimumGatingPosition() + capacity + 1;
+         if (writePosition >= cachedMaxWritePosition)
+         {
+            --writePosition;
+            return null;
+         }
+      }
+      return getObject(writePosition);
+   }
+
+   /**
+    * Make all objects set using @see{next} since last commit visible to the consumers
+    */
+   public void commit()
+   {
+      commitPosition.setRelease(writePosition);
+   }
+
+   /**
+    * @return Capacity of the cyclic buffer
+    */
+   public long getCapacity()
+   {
+      return this.capacity;
+   }
+
+   /**
+    * Public function to avoid removal of padding
+    *
+    * @return sum of p
+    */
+   public long avoidPaddingRemoval()
+   {
+      return p1 + p2 + p3 + p4 + p5 + p6 + p7;
+   }
+
+   /**
+    * Consumer endpoint of the ring buffer. Not thread safe, every consumer thread needs its own
+    * instance.
+    */
+   public class Consumer
+   {
+      public volatile long p1, p2, p3, p4, p5, p6, p7 = 8L;
+
+      private long readLimit = -1;
+      private long readPosition = -1;
+
+      /*
+       * Last position flushed by this consumer
+       */
+      private final PaddedVolatileLong consumerPosition = new PaddedVolatileLong(-1);
+      private final ConcurrentMultiConsumerRingBuffer<?>.Consumer[] dependencies;
+
+      private Consumer(ConcurrentMultiConsumerRingBuffer<?>.Consumer[] dependencies)
+      {
+         this.dependencies = dependencies.clone();
+      }
+
+      private ConcurrentMultiConsumerRingBuffer<T> getRingBuffer()
+      {
+         return ConcurrentMultiConsumerRingBuffer.this;
+      }
+
+      /**
+       * Get latest data from the producer, limited to the data flushed by all dependencies of this
+       * consumer. Run before a sequence of @see{read}
+       *
+       * @return true if there is new data available
+       */
+      public boolean poll()
+      {
+         long limit = commitPosition.getAcquire();
+         for (int i = 0; i < dependencies.length; i++)
+         {
+            limit = Math.min(limit, dependencies[i].consumerPosition.getAcquire());
+         }
+         readLimit = limit;
+
+         if (readPosition < readLimit)
+         {
+            return true;
+         }
+         else
+         {
+            return false;
+         }
+      }
+
+      /**
+       * Reads next data object. Run @see{poll} to update the read limit.
+       *
+       * @return new data, null if no new data
+       */
+      public T read()
+      {
+         if (readPosition >= readLimit)
+         {
+            return null;
+         }
+         ++readPosition;
+
+         return getObject(readPosition);
+      }
+
+      /**
+       * Get next data object. Run @see{poll} to update the read limit. Does not advance the read
+       * position.
+       *
+       * @return new data, null if no new data
+       */
+      public T peek()
+      {
+         if (readPosition >= readLimit)
+         {
+            return null;
+         }
+
+         return getObject(readPosition + 1);
+      }
+
+      /**
+       * Flushes read objects, making them available to dependent consumers and, once all consumers
+       * have flushed them, for writing. Call after @see{read}
+       */
+      public void flush()
+      {
+         consumerPosition.setRelease(readPosition);
+      }
+
+      /**
+       * Public function to avoid removal of padding
+       *
+       * @return sum of p
+       */
+      public long avoidPaddingRemoval()
+      {
+         return p1 + p2 + p3 + p4 + p5 + p6 + p7;
+      }
+   }
+}
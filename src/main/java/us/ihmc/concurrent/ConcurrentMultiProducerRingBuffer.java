@@ -0,0 +1,255 @@
+package us.ihmc.concurrent;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import us.ihmc.util.PaddedVolatileLong;
+import us.ihmc.util.RealtimeTools;
+
+/**
+ * Concurrent lock-free and garbage-free implementation of a cyclic buffer with multiple producers
+ * and a single consumer.
+ * <p>
+ * Every producer thread obtains its own {@link Producer} from {@link #createProducer()} and uses
+ * it like the producer side of {@link ConcurrentRingBuffer}. Slots are claimed by a
+ * compare-and-swap on a shared claim position and published by marking each slot with its
+ * position, so producers never wait on each other to make their data visible. The consumer drains
+ * the buffer in claim order with the same poll/read/flush sequence as {@link ConcurrentRingBuffer}.
+ * <p>
+ * Usage:
+ *
+ * <pre>
+ *    // Setup, once per producer thread
+ *    ConcurrentMultiProducerRingBuffer&lt;T&gt;.Producer producer = buffer.createProducer();
+ *
+ *    // Producer thread
+ *    T next = producer.next();
+ *    if(next != null)
+ *    {
+ *       // Fill next
+ *       producer.commit();
+ *    }
+ * </pre>
+ *
+ * @param <T> Class in buffer
+ */
+public class ConcurrentMultiProducerRingBuffer<T>
+{
+   /*
+    * Producer variables, shared by all producers
+    */
+   private final PaddedVolatileLong claimPosition = new PaddedVolatileLong(-1);
+
+   /*
+    * Position of the last commit to each slot. A slot is readable at position p when published[p & capacityMask] == p
+    */
+   private final AtomicLongArray published;
+
+   public volatile long p1, p2, p3, p4, p5, p6, p7 = 8L;
+
+   /*
+    * Consumer variables
+    */
+   private long readLimit = -1;
+   private long readPosition = -1;
+   private final PaddedVolatileLong consumerPosition = new PaddedVolatileLong(0);
+
+   // More padding
+   public volatile long p8, p9, p10, p11, p12, p13, p14 = 15L;
+
+   private final int capacity;
+   private final int capacityMask;
+   private final T[] buffer;
+
+   /**
+    * @param classBuilder Helper class to create empty version of T
+    * @param capacity Capacity of the ring buffer, automatically rounded up to the next power of two
+    */
+   @SuppressWarnings("unchecked")
+   public ConcurrentMultiProducerRingBuffer(Builder<? extends T> classBuilder, int capacity)
+   {
+      if (capacity < 0)
+      {
+         throw new RuntimeException("Capacity < 0");
+      }
+
+      this.capacity = RealtimeTools.nextPowerOfTwo(capacity);
+      this.capacityMask = this.capacity - 1;
+
+      buffer = (T[]) new Object[this.capacity];
+      published = new AtomicLongArray(this.capacity);
+
+      for (int i = 0; i < this.capacity; i++)
+      {
+         buffer[i] = classBuilder.newInstance();
+         published.set(i, -1);
+      }
+   }
+
+   /**
+    * Create a new producer endpoint. Each producer thread needs its own producer. Allocates, call
+    * this during setup.
+    *
+    * @return Producer for a single thread
+    */
+   public Producer createProducer()
+   {
+      return new Producer();
+   }
+
+   private int getIndex(long position)
+   {
+      return (int) (position & capacityMask);
+   }
+
+   private T getObject(long position)
+   {
+      return buffer[getIndex(position)];
+   }
+
+   /**
+    * Get latest data from the producers. Run before a sequence of @see{read}
+    *
+    * Only slots that are published in order are made available. A slot claimed but not yet committed
+    * by a slow producer holds back the slots claimed after it.
+    *
+    * @return true if there is new data available
+    */
+   public boolean poll()
+   {
+      long position = readLimit + 1;
+
+      // Reading from published inserts a memory read barrier for each slot
+      while (published.get(getIndex(position)) == position)
+      {
+         readLimit = position;
+         ++position;
+      }
+
+      if (readPosition < readLimit)
+      {
+         return true;
+      }
+      else
+      {
+         return false;
+      }
+   }
+
+   /**
+    * Reads next data object. Run @see{poll} to update the read limit.
+    *
+    * @return new data, null if no new data
+    */
+   public T read()
+   {
+      if (readPosition >= readLimit)
+      {
+         return null;
+      }
+      ++readPosition;
+
+      return getObject(readPosition);
+   }
+
+   /**
+    * Get next data object. Run @see{poll} to update the read limit. Does not advance the read
+    * position.
+    *
+    * @return new data, null if no new data
+    */
+   public T peek()
+   {
+      if (readPosition >= readLimit)
+      {
+         return null;
+      }
+
+      return getObject(readPosition + 1);
+   }
+
+   /**
+    * Flushes read objects, making them available for writing. Call after @see{read}
+    */
+   public void flush()
+   {
+      consumerPosition.setRelease(readPosition);
+   }
+
+   /**
+    * @return Capacity of the cyclic buffer
+    */
+   public long getCapacity()
+   {
+      return this.capacity;
+   }
+
+   /**
+    * Public function to avoid removal of padding
+    *
+    * @return sum of p
+    */
+   public long avoidPaddingRemoval()
+   {
+      return p1 + p2 + p3 + p4 + p5 + p6 + p7 + p8 + p9 + p10 + p11 + p12 + p13 + p14;
+   }
+
+   /**
+    * Producer endpoint of the ring buffer. Not thread safe, every producer thread needs its own
+    * instance.
+    */
+   public class Producer
+   {
+      private final long[] claimedPositions = new long[capacity];
+      private int numberOfClaimedPositions = 0;
+      private long cachedMaxWritePosition = -1;
+
+      private Producer()
+      {
+      }
+
+      /**
+       * Get a new object for writing, return null if there is no space in the buffer
+       *
+       * @return Object for writing
+       */
+      public T next()
+      {
+         long currentPosition;
+         long nextPosition;
+         do
+         {
+            currentPosition = claimPosition.get();
+            nextPosition = currentPosition + 1;
+
+            if (nextPosition >= cachedMaxWritePosition)
+            {
+               cachedMaxWritePosition = consumerPosition.getAcquire() + capacity;
+               if (nextPosition >= cachedMaxWritePosition)
+               {
+                  return null;
+               }
+            }
+         }
+         while (!claimPosition.compareAndSet(currentPosition, nextPosition));
+
+         claimedPositions[numberOfClaimedPositions++] = nextPosition;
+         return getObject(nextPosition);
+      }
+
+      /**
+       * Make all objects claimed using @see{next} since the last commit of this producer visible to the
+       * consumer
+       */
+      public void commit()
+      {
+         for (int i = 0; i < numberOfClaimedPositions; i++)
+         {
+            long position = claimedPositions[i];
+
+            // Ordered write, all writes to the object are visible before the slot is marked as published
+            published.lazySet(getIndex(position), position);
+         }
+         numberOfClaimedPositions = 0;
+      }
+   }
+}
@@ -0,0 +1,186 @@
+package us.ihmc.concurrent;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Class to copy the latest data from one producer thread to multiple consumer threads guaranteeing
+ * atomicity. This class is wait-free for the producer, lock-free for the consumers and garbage-free.
+ * <p>
+ * There are N + 2 objects in the buffer for N readers: one for each reader, the latest committed
+ * object and one to write. Each reader publishes the object it holds in its own slot. To get a new
+ * object, a reader sets its slot to REQUEST, reads the latest object and tries to replace REQUEST by
+ * it. The producer replaces REQUEST by the newly committed object on every commit, so a reader either
+ * ends up with the object it read or a newer one, but never with an object the producer is writing.
+ * <p>
+ * Only one producer is supported. Every consumer thread needs its own {@link Reader}, created with
+ * {@link #createReader()}.
+ *
+ * @param <T> object
+ */
+public class ConcurrentMultiReaderCopier<T>
+{
+   private static final int NONE = -1;
+   private static final int REQUEST = -2;
+
+   /*
+    * Stride between reader slots, puts each slot on its own cache line
+    */
+   private static final int SLOT_STRIDE = 16;
+
+   public final T[] buffer;
+
+   private final int numberOfReaders;
+   private int createdReaders = 0;
+
+   private final AtomicInteger latest = new AtomicInteger(NONE);
+   private final AtomicIntegerArray readerSlots;
+
+   /*
+    * Producer variables
+    */
+   private final boolean[] inUse;
+   private int currentlyBeingWritten = NONE;
+
+   /**
+    * @param numberOfReaders Maximum number of readers
+    * @param classBuilder Builder for the objects in the buffer
+    */
+   @SuppressWarnings("unchecked")
+   public ConcurrentMultiReaderCopier(int numberOfReaders, Builder<? extends T> classBuilder)
+   {
+      if (numberOfReaders < 1)
+      {
+         throw new IllegalArgumentException("Number of readers < 1");
+      }
+
+      this.numberOfReaders = numberOfReaders;
+
+      buffer = (T[]) new Object[numberOfReaders + 2];
+      for (int i = 0; i < buffer.length; i++)
+      {
+         buffer[i] = classBuilder.newInstance();
+      }
+
+      inUse = new boolean[buffer.length];
+
+      readerSlots = new AtomicIntegerArray((numberOfReaders + 1) * SLOT_STRIDE);
+      for (int i = 0; i < numberOfReaders; i++)
+      {
+         readerSlots.set(getSlotIndex(i), NONE);
+      }
+   }
+
+   private static int getSlotIndex(int reader)
+   {
+      return (reader + 1) * SLOT_STRIDE;
+   }
+
+   /**
+    * Create a new reader. Each consumer thread needs its own reader.
+    *
+    * @return New reader
+    * @throws IllegalStateException if all readers have been created
+    */
+   public synchronized Reader createReader()
+   {
+      if (createdReaders >= numberOfReaders)
+      {
+         throw new IllegalStateException("Cannot create more than " + numberOfReaders + " readers");
+      }
+
+      return new Reader(createdReaders++);
+   }
+
+   /**
+    * Get an object that is not held by any reader and not the latest committed object. Never blocks.
+    *
+    * @return Object to write to
+    */
+   public T getCopyForWriting()
+   {
+      for (int i = 0; i < inUse.length; i++)
+      {
+         inUse[i] = false;
+      }
+
+      int latestIndex = latest.get();
+      if (latestIndex != NONE)
+      {
+         inUse[latestIndex] = true;
+      }
+
+      for (int i = 0; i < numberOfReaders; i++)
+      {
+         int held = readerSlots.get(getSlotIndex(i));
+         if (held >= 0)
+         {
+            inUse[held] = true;
+         }
+      }
+
+      // At most N + 1 objects are in use, so there is always a free object
+      currentlyBeingWritten = 0;
+      while (inUse[currentlyBeingWritten])
+      {
+         ++currentlyBeingWritten;
+      }
+
+      return buffer[currentlyBeingWritten];
+   }
+
+   /**
+    * Commit write such that getCopyForReading returns the newest copy
+    */
+   public void commit()
+   {
+      latest.set(currentlyBeingWritten);
+
+      // Hand the new object to all readers that are in the middle of a request
+      for (int i = 0; i < numberOfReaders; i++)
+      {
+         readerSlots.compareAndSet(getSlotIndex(i), REQUEST, currentlyBeingWritten);
+      }
+   }
+
+   /**
+    * Handle for a single consumer thread
+    */
+   public class Reader
+   {
+      private final int slotIndex;
+
+      private Reader(int reader)
+      {
+         this.slotIndex = getSlotIndex(reader);
+      }
+
+      /**
+       * Get the latest committed object. The object stays valid until the next call from this reader.
+       *
+       * @return Latest committed object, null if nothing has been committed yet
+       */
+      public T getCopyForReading()
+      {
+         readerSlots.set(slotIndex, REQUEST);
+         int latestIndex = latest.get();
+
+         int held;
+         if (readerSlots.compareAndSet(slotIndex, REQUEST, latestIndex))
+         {
+            held = latestIndex;
+         }
+         else
+         {
+            // The producer committed a newer object and handed it to this reader
+            held = readerSlots.get(slotIndex);
+         }
+
+         if (held == NONE)
+         {
+            return null;
+         }
+         return buffer[held];
+      }
+   }
+}
@@ -0,0 +1,157 @@
+package us.ihmc.concurrent;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Class to copy the latest data from multiple producer threads to one consumer thread guaranteeing
+ * atomicity. This class is lock-free for producers and consumer and garbage-free.
+ * <p>
+ * Every writer owns three objects. The state packs the index of the latest committed object in the low
+ * 16 bits and the index of the object being read in the high 16 bits. A writer writes to one of its own
+ * objects that is neither the latest nor being read; only the writer that owns an object can make it
+ * the latest, so the reader can never take an object that is being written. A writer commits by
+ * setting the latest index with a compare-and-set, the reader takes the latest object with a
+ * compare-and-set on the reading index.
+ * <p>
+ * Every producer thread needs its own {@link Writer}, created with {@link #createWriter()}. Only one
+ * consumer is supported.
+ *
+ * @param <T> object
+ */
+public class ConcurrentMultiWriterCopier<T>
+{
+   private static final int NONE = 0xFFFF;
+   private static final int LATEST_MASK = 0xFFFF;
+   private static final int READING_SHIFT = 16;
+   private static final int INITIAL_STATE = NONE | (NONE << READING_SHIFT);
+
+   /**
+    * Maximum number of writers, all object indices must fit in 16 bits
+    */
+   public static final int MAXIMUM_NUMBER_OF_WRITERS = NONE / 3;
+
+   public final T[] buffer;
+
+   private final int numberOfWriters;
+   private int createdWriters = 0;
+
+   private final AtomicInteger state = new AtomicInteger(INITIAL_STATE);
+
+   /**
+    * @param numberOfWriters Maximum number of writers
+    * @param classBuilder Builder for the objects in the buffer
+    */
+   @SuppressWarnings("unchecked")
+   public ConcurrentMultiWriterCopier(int numberOfWriters, Builder<? extends T> classBuilder)
+   {
+      if (numberOfWriters < 1 || numberOfWriters > MAXIMUM_NUMBER_OF_WRITERS)
+      {
+         throw new IllegalArgumentException("Number of writers must be in [1, " + MAXIMUM_NUMBER_OF_WRITERS + "]");
+      }
+
+      this.numberOfWriters = numberOfWriters;
+
+      buffer = (T[]) new Object[3 * numberOfWriters];
+      for (int i = 0; i < buffer.length; i++)
+      {
+         buffer[i] = classBuilder.newInstance();
+      }
+   }
+
+   /**
+    * Create a new writer. Each producer thread needs its own writer.
+    *
+    * @return New writer
+    * @throws IllegalStateException if all writers have been created
+    */
+   public synchronized Writer createWriter()
+   {
+      if (createdWriters >= numberOfWriters)
+      {
+         throw new IllegalStateException("Cannot create more than " + numberOfWriters + " writers");
+      }
+
+      return new Writer(3 * createdWriters++);
+   }
+
+   /**
+    * Get the most recently committed object. The object stays valid until the next call.
+    *
+    * @return Latest committed object, null if nothing has been committed yet
+    */
+   public T getCopyForReading()
+   {
+      while (true)
+      {
+         int currentState = state.get();
+         int latest = currentState & LATEST_MASK;
+         if (latest == NONE)
+         {
+            return null;
+         }
+
+         // Volatile, the previously read object is handed back to the writers
+         if (state.weakCompareAndSetVolatile(currentState, latest | (latest << READING_SHIFT)))
+         {
+            return buffer[latest];
+         }
+      }
+   }
+
+   /**
+    * Handle for a single producer thread
+    */
+   public class Writer
+   {
+      private final int firstIndex;
+      private int currentlyBeingWritten = NONE;
+
+      private Writer(int firstIndex)
+      {
+         this.firstIndex = firstIndex;
+      }
+
+      /**
+       * Get one of the objects of this writer that is neither the latest nor being read
+       *
+       * @return Object to write to
+       */
+      public T getCopyForWriting()
+      {
+         int currentState = state.getAcquire();
+         int latest = currentState & LATEST_MASK;
+         int reading = currentState >>> READING_SHIFT;
+
+         currentlyBeingWritten = firstIndex;
+         while (currentlyBeingWritten == latest || currentlyBeingWritten == reading)
+         {
+            ++currentlyBeingWritten;
+         }
+
+         return buffer[currentlyBeingWritten];
+      }
+
+      /**
+       * Commit write such that getCopyForReading returns the newest copy
+       */
+      public void commit()
+      {
+         if (currentlyBeingWritten == NONE)
+         {
+            throw new IllegalStateException("Call getCopyForWriting before commit");
+         }
+
+         while (true)
+         {
+            int currentState = state.get();
+            int newState = (currentState & ~LATEST_MASK) | currentlyBeingWritten;
+            if (state.weakCompareAndSetRelease(currentState, newState))
+            {
+               break;
+            }
+         }
+
+         currentlyBeingWritten = NONE;
+      }
+   }
+}
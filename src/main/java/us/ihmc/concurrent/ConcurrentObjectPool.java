@@ -0,0 +1,164 @@
+package us.ihmc.concurrent;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import us.ihmc.util.PaddedVolatileLong;
+import us.ihmc.util.RealtimeTools;
+
+/**
+ * Bounded pool of preallocated objects for handing objects from a realtime thread to other threads
+ * without garbage.
+ * <p>
+ * The owner thread acquires objects with {@link #acquire()}. Any thread can give an object back with
+ * {@link #release(Object)}, through a lock-free multi-producer return queue that the owner drains when
+ * it runs out of free objects. The return queue holds at least as many entries as the pool, so a
+ * release never fails or waits.
+ * <p>
+ * Only release objects acquired from this pool, and only once. The statistics are updated by the
+ * owner thread.
+ *
+ * @param <T> Class in pool
+ */
+public class ConcurrentObjectPool<T>
+{
+   /*
+    * Owner variables
+    */
+   private final T[] free;
+   private int freeCount;
+   private long readPosition = 0;
+
+   private int highWaterMark = 0;
+   private long exhaustedCount = 0;
+
+   /*
+    * Return queue, written by any thread
+    */
+   private final PaddedVolatileLong returnPosition = new PaddedVolatileLong(0);
+   private final AtomicReferenceArray<T> returned;
+   private final int returnedMask;
+
+   private final int capacity;
+
+   /**
+    * @param capacity Number of objects in the pool, at least 1
+    * @param classBuilder Builder for the objects in the pool
+    */
+   @SuppressWarnings("unchecked")
+   public ConcurrentObjectPool(int capacity, Builder<? extends T> classBuilder)
+   {
+      if (capacity < 1)
+      {
+         throw new RuntimeException("Capacity < 1");
+      }
+
+      this.capacity = capacity;
+
+      free = (T[]) new Object[capacity];
+      for (int i = 0; i < capacity; i++)
+      {
+         free[i] = classBuilder.newInstance();
+      }
+      freeCount = capacity;
+
+      int returnedCapacity = RealtimeTools.nextPowerOfTwo(capacity);
+      returned = new AtomicReferenceArray<>(returnedCapacity);
+      returnedMask = returnedCapacity - 1;
+   }
+
+   /**
+    * Get a free object from the pool. Call from the owner thread only.
+    *
+    * @return Free object, null if all objects are in use
+    */
+   public T acquire()
+   {
+      if (freeCount == 0 && drainReturned() == 0)
+      {
+         ++exhaustedCount;
+         return null;
+      }
+
+      T object = free[--freeCount];
+      free[freeCount] = null;
+
+      int inUse = capacity - freeCount;
+      if (inUse > highWaterMark)
+      {
+         highWaterMark = inUse;
+      }
+
+      return object;
+   }
+
+   /**
+    * Give an object back to the pool. Can be called from any thread.
+    *
+    * @param object Object acquired from this pool
+    */
+   public void release(T object)
+   {
+      // A null in the return queue marks a slot that is still being written, it would block draining forever
+      Objects.requireNonNull(object);
+
+      long position = returnPosition.getAndIncrement();
+      returned.setRelease((int) (position & returnedMask), object);
+   }
+
+   /**
+    * Move the released objects to the free objects. Called by {@link #acquire()} when there are no
+    * free objects, call from the owner thread to recycle objects earlier.
+    *
+    * @return Number of objects moved
+    */
+   public int drainReturned()
+   {
+      int count = 0;
+      while (true)
+      {
+         int index = (int) (readPosition & returnedMask);
+
+         // A claimed position that is still null is being written, continue on the next drain
+         T object = returned.getAcquire(index);
+         if (object == null)
+         {
+            return count;
+         }
+
+         returned.setOpaque(index, null);
+         free[freeCount++] = object;
+         ++readPosition;
+         ++count;
+      }
+   }
+
+   /**
+    * @return Number of free objects, not counting released objects that have not been drained yet
+    */
+   public int getFreeCount()
+   {
+      return freeCount;
+   }
+
+   /**
+    * @return Highest number of objects in use at the same time
+    */
+   public int getHighWaterMark()
+   {
+      return highWaterMark;
+   }
+
+   /**
+    * @return Number of times {@link #acquire()} returned null
+    */
+   public long getExhaustedCount()
+   {
+      return exhaustedCount;
+   }
+
+   public int getCapacity()
+   {
+      return capacity;
+   }
+}
@@ -0,0 +1,153 @@
+package us.ihmc.concurrent;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Channel from one producer thread to one consumer thread with a fixed number of priority lanes.
+ * Lock-free and garbage-free.
+ * <p>
+ * Each lane is a preallocated {@link ConcurrentRingBuffer}. Lane 0 has the highest priority. The
+ * consumer always takes the next entry from the highest priority lane that has data, so the latency of
+ * an entry does not depend on how much data is queued in lower priority lanes. When a lane is full,
+ * {@link #next(int)} returns null and the drop is counted for that lane.
+ * <p>
+ * Only one producer and one consumer are supported.
+ *
+ * @param <T> Class in channel
+ */
+public class ConcurrentPriorityChannel<T>
+{
+   private static final VarHandle EMPTY_POLL_COUNT;
+   static
+   {
+      try
+      {
+         EMPTY_POLL_COUNT = MethodHandles.lookup().findVarHandle(ConcurrentPriorityChannel.class, "emptyPollCount", long.class);
+      }
+      catch (ReflectiveOperationException e)
+      {
+         throw new ExceptionInInitializerError(e);
+      }
+   }
+
+   private final ConcurrentRingBuffer<T>[] lanes;
+
+   /*
+    * Consumer variables
+    */
+   private int lastPolledLane = -1;
+   private long emptyPollCount;
+
+   /**
+    * @param classBuilder Builder for the objects in the lanes
+    * @param laneCapacities Capacity of every lane, from highest to lowest priority. Capacities are
+    *           rounded up to the next power of two.
+    */
+   @SuppressWarnings({"unchecked", "rawtypes"})
+   public ConcurrentPriorityChannel(Builder<? extends T> classBuilder, int... laneCapacities)
+   {
+      if (laneCapacities.length == 0)
+      {
+         throw new IllegalArgumentException("A channel needs at least one lane");
+      }
+
+      lanes = new ConcurrentRingBuffer[laneCapacities.length];
+      for (int i = 0; i < lanes.length; i++)
+      {
+         lanes[i] = new ConcurrentRingBuffer<>(classBuilder, laneCapacities[i]);
+      }
+   }
+
+   /**
+    * Get a new object to write to in the given lane
+    *
+    * @param lane Lane, 0 is the highest priority
+    * @return Object to write to, null if the lane is full
+    */
+   public T next(int lane)
+   {
+      return lanes[lane].next();
+   }
+
+   /**
+    * Make all objects in the lane set using next(lane) since the last commit visible to the consumer
+    *
+    * @param lane Lane to commit
+    */
+   public void commit(int lane)
+   {
+      lanes[lane].commit();
+   }
+
+   /**
+    * Get the next entry from the highest priority lane that has data. The entry stays valid until the
+    * next call to poll(); the previous entry is released for writing by this call.
+    *
+    * @return Next entry, null if all lanes are empty
+    */
+   public T poll()
+   {
+      if (lastPolledLane >= 0)
+      {
+         lanes[lastPolledLane].flush();
+         lastPolledLane = -1;
+      }
+
+      for (int i = 0; i < lanes.length; i++)
+      {
+         // Skipping an empty lane is not an empty poll of that lane, do not count it
+         ConcurrentRingBuffer<T> lane = lanes[i];
+         if (lane.pollWithoutCounting())
+         {
+            lastPolledLane = i;
+            return lane.read();
+         }
+      }
+
+      EMPTY_POLL_COUNT.setOpaque(this, emptyPollCount + 1);
+      return null;
+   }
+
+   /**
+    * @return Lane of the entry returned by the last call to poll(), -1 if it returned null
+    */
+   public int getLastPolledLane()
+   {
+      return lastPolledLane;
+   }
+
+   public int getNumberOfLanes()
+   {
+      return lanes.length;
+   }
+
+   public long getCapacity(int lane)
+   {
+      return lanes[lane].getCapacity();
+   }
+
+   /**
+    * @return Number of entries committed but not polled in the lane. Can be called from any thread.
+    */
+   public long getOccupancy(int lane)
+   {
+      return lanes[lane].getOccupancy();
+   }
+
+   /**
+    * @return Number of times next(lane) returned null because the lane was full. Can be called from any thread.
+    */
+   public long getDropCount(int lane)
+   {
+      return lanes[lane].getProducerFullCount();
+   }
+
+   /**
+    * @return Number of calls to poll() that found all lanes empty. Can be called from any thread.
+    */
+   public long getEmptyPollCount()
+   {
+      return (long) EMPTY_POLL_COUNT.getOpaque(this);
+   }
+}
@@ -17,9 +17,63 @@
  */
 package us.ihmc.concurrent;
 
-import us.ihmc.util.PaddedAtomicLong;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+import us.ihmc.concurrent.waitStrategies.BusySpinWaitStrategy;
+import us.ihmc.concurrent.waitStrategies.WaitStrategy;
+import us.ihmc.util.PaddedVolatileLong;
 import us.ihmc.util.RealtimeTools;
 
+/*
+ * The fields are split over a class hierarchy with padding classes in between. The JVM lays out the
+ * fields of a superclass before the fields of its subclasses, so unlike padding fields in a single
+ * class, the padding cannot be reordered and the producer and consumer fields end up on separate
+ * cache lines. See
+ * 
+ * http://mechanical-sympathy.blogspot.com/2011/07/false-sharing.html
+ * http://mechanical-sympathy.blogspot.com/2011/08/false-sharing-java-7.html
+ */
+abstract class ConcurrentRingBufferLeftPadding
+{
+   long p00, p01, p02, p03, p04, p05, p06, p07;
+}
+
+abstract class ConcurrentRingBufferProducerFields extends ConcurrentRingBufferLeftPadding
+{
+   long writePosition = -1;
+   long cachedMaxWritePosition = -1;
+
+   /*
+    * Metrics, only written by the producer
+    */
+   long commitCount;
+   long producerFullCount;
+}
+
+abstract class ConcurrentRingBufferMiddlePadding extends ConcurrentRingBufferProducerFields
+{
+   long p10, p11, p12, p13, p14, p15, p16, p17;
+}
+
+abstract class ConcurrentRingBufferConsumerFields extends ConcurrentRingBufferMiddlePadding
+{
+   long readLimit = -1;
+   long readPosition = -1;
+   long flushedPosition = -1;
+
+   /*
+    * Metrics, only written by the consumer
+    */
+   long emptyPollCount;
+   long highWaterMark;
+}
+
+abstract class ConcurrentRingBufferRightPadding extends ConcurrentRingBufferConsumerFields
+{
+   long p20, p21, p22, p23, p24, p25, p26, p27;
+}
+
 /**
  * Concurrent lock-free and garbage-free implementation of a cyclic buffer
  * 
@@ -33,40 +87,56 @@ import us.ihmc.util.RealtimeTools;
  *
  * @param <T> Class in buffer
  */
-public class ConcurrentRingBuffer<T>
+public class ConcurrentRingBuffer<T> extends ConcurrentRingBufferRightPadding
 {
-
    /*
-    * Producer variables
+    * The metrics are written with opaque stores by their owning thread, so a monitor thread can read
+    * them at any time without adding fences to the hot path
     */
-   private long writePosition = -1;
-   private long cachedMaxWritePosition = -1;
-   private final PaddedAtomicLong commitPosition = new PaddedAtomicLong(-1);
+   private static final VarHandle COMMIT_COUNT;
+   private static final VarHandle PRODUCER_FULL_COUNT;
+   private static final VarHandle HIGH_WATER_MARK;
+   private static final VarHandle EMPTY_POLL_COUNT;
+   static
+   {
+      try
+      {
+         MethodHandles.Lookup lookup = MethodHandles.lookup();
+         COMMIT_COUNT = lookup.findVarHandle(ConcurrentRingBufferProducerFields.class, "commitCount", long.class);
+         PRODUCER_FULL_COUNT = lookup.findVarHandle(ConcurrentRingBufferProducerFields.class, "producerFullCount", long.class);
+         HIGH_WATER_MARK = lookup.findVarHandle(ConcurrentRingBufferConsumerFields.class, "highWaterMark", long.class);
+         EMPTY_POLL_COUNT = lookup.findVarHandle(ConcurrentRingBufferConsumerFields.class, "emptyPollCount", long.class);
+      }
+      catch (ReflectiveOperationException e)
+      {
+         throw new ExceptionInInitializerError(e);
+      }
+   }
 
    /*
-    * 
-    * Some padding to hopefully avoid false sharing, see
-    * 
-    * http://mechanical-sympathy.blogspot.com/2011/07/false-sharing.html
-    * http://mechanical-sympathy.blogspot.com/2011/08/false-sharing-java-7.html
+    * Positions shared between producer and consumer, each on their own cache line
     */
+   private final PaddedVolatileLong commitPosition = new PaddedVolatileLong(-1);
+   private final PaddedVolatileLong consumerPosition = new PaddedVolatileLong(0);
 
-   public volatile long p1, p2, p3, p4, p5, p6, p7 = 8L;
+   private final int capacity;
+   private final int capacityMask;
+   private final T[] buffer;
 
-   /*
-    * Consumer variables
-    */
-   private long readLimit = -1;
-   private long readPosition = -1;
-   private final PaddedAtomicLong consumerPosition = new PaddedAtomicLong(0);
+   private WaitStrategy producerWaitStrategy = new BusySpinWaitStrategy();
+   private WaitStrategy consumerWaitStrategy = new BusySpinWaitStrategy();
 
-   // More padding
+   /**
+    * @deprecated Unused, the padding is part of the class hierarchy. Kept for compatibility.
+    */
+   @Deprecated
+   public volatile long p1, p2, p3, p4, p5, p6, p7 = 8L;
+   /**
+    * @deprecated Unused, the padding is part of the class hierarchy. Kept for compatibility.
+    */
+   @Deprecated
    public volatile long p8, p9, p10, p11, p12, p13, p14 = 15L;
 
-   private final int capacity;
-   private final int capacityMask;
-   private T[] buffer;
-
    /**
     * 
     * @param classBuilder Helper class to create empty version of T
@@ -91,6 +161,28 @@ public class ConcurrentRingBuffer<T>
       }
    }
 
+   /**
+    * Set the strategy used by @see{awaitNext} to wait for free space. Call during setup, before the
+    * producer and consumer threads are started.
+    * 
+    * @param producerWaitStrategy Wait strategy for the producer, defaults to busy spinning
+    */
+   public void setProducerWaitStrategy(WaitStrategy producerWaitStrategy)
+   {
+      this.producerWaitStrategy = producerWaitStrategy;
+   }
+
+   /**
+    * Set the strategy used by @see{awaitPoll} to wait for new data. Call during setup, before the
+    * producer and consumer threads are started.
+    * 
+    * @param consumerWaitStrategy Wait strategy for the consumer, defaults to busy spinning
+    */
+   public void setConsumerWaitStrategy(WaitStrategy consumerWaitStrategy)
+   {
+      this.consumerWaitStrategy = consumerWaitStrategy;
+   }
+
    private T getObject(long position)
    {
       return buffer[(int) (position & capacityMask)];
@@ -106,25 +198,100 @@ public class ConcurrentRingBuffer<T>
       ++writePosition;
       if(writePosition >= cachedMaxWritePosition)
       {
-         cachedMaxWritePosition = consumerPosition.get() + capacity;
+         cachedMaxWritePosition = consumerPosition.getAcquire() + capacity;
          if(writePosition >= cachedMaxWritePosition)
          {
             --writePosition;
+            PRODUCER_FULL_COUNT.setOpaque(this, producerFullCount + 1);
             return null;
          }
       }
       return getObject(writePosition);
    }
 
+   /**
+    * Get a new object for writing, waiting for space using the producer wait strategy.
+    * 
+    * @param timeoutNanos Maximum time to wait in nanoseconds
+    * @return Object for writing, null if there was no space before the timeout
+    */
+   public T awaitNext(long timeoutNanos)
+   {
+      T next = next();
+      if (next != null)
+      {
+         return next;
+      }
+
+      long deadline = System.nanoTime() + timeoutNanos;
+      int idleCount = 0;
+      while ((next = next()) == null)
+      {
+         long remainingNanos = deadline - System.nanoTime();
+         if (remainingNanos <= 0)
+         {
+            break;
+         }
+         producerWaitStrategy.idle(idleCount++, remainingNanos);
+      }
+
+      producerWaitStrategy.waitCompleted();
+      return next;
+   }
+
+   /**
+    * Claim n contiguous objects for writing in one step. Get the claimed objects with @see{get} at
+    * positions [first, first + n). Nothing is claimed if there is not enough space in the buffer.
+    * 
+    * @param n Number of objects to claim, at most the capacity of the buffer
+    * @return Position of the first claimed object, -1 if there is not enough space in the buffer
+    */
+   public long next(int n)
+   {
+      if (n < 1 || n > capacity)
+      {
+         throw new IllegalArgumentException("Cannot claim " + n + " objects in a buffer with capacity " + capacity);
+      }
+
+      long lastPosition = writePosition + n;
+      if(lastPosition >= cachedMaxWritePosition)
+      {
+         cachedMaxWritePosition = consumerPosition.getAcquire() + capacity;
+         if(lastPosition >= cachedMaxWritePosition)
+         {
+            PRODUCER_FULL_COUNT.setOpaque(this, producerFullCount + 1);
+            return -1;
+         }
+      }
+
+      long firstPosition = writePosition + 1;
+      writePosition = lastPosition;
+      return firstPosition;
+   }
+
+   /**
+    * Get the object at a position claimed using @see{next(int)}
+    * 
+    * @param position Position returned by @see{next(int)}, plus an offset smaller than the number of claimed objects
+    * @return Object for writing
+    */
+   public T get(long position)
+   {
+      return getObject(position);
+   }
+
    /**
     * Make all objects set using @see{next} since last commit visible to the consumer 
     * 
     */
    public void commit()
    {
-      // Set the commitPosition to writePosition. Writing to commitPosition inserts a memory write barrier
-      
-      commitPosition.set(writePosition);
+      // Set the commitPosition to writePosition. The release store makes all writes to the objects visible
+      // to the consumer before the new commitPosition, without the full fence of a volatile store
+      commitPosition.setRelease(writePosition);
+      consumerWaitStrategy.signal();
+
+      COMMIT_COUNT.setOpaque(this, commitCount + 1);
    }
 
    /**
@@ -134,19 +301,67 @@ public class ConcurrentRingBuffer<T>
     */
    public boolean poll()
    {
-      // Reading from commitPosition inserts a memory read barrier, making sure that this thread's caches are coherent
-      readLimit = commitPosition.get();
-      
-      if(readPosition < readLimit)
+      if(pollWithoutCounting())
       {
          return true;
       }
       else
       {
+         EMPTY_POLL_COUNT.setOpaque(this, emptyPollCount + 1);
          return false;
       }
    }
 
+   /**
+    * Same as {@link #poll()}, but does not count an empty poll. For consumers that check several
+    * buffers in turn, where an empty buffer is not an idle consumer.
+    * 
+    * @return true if there is new data available
+    */
+   boolean pollWithoutCounting()
+   {
+      // Reading commitPosition with acquire semantics makes the objects written before the commit visible
+      readLimit = commitPosition.getAcquire();
+
+      if(readPosition < readLimit)
+      {
+         updateHighWaterMark();
+         return true;
+      }
+      return false;
+   }
+
+   /**
+    * Get latest data from producer, waiting for new data using the consumer wait strategy. Run before
+    * a sequence of @see{read}
+    * 
+    * @param timeoutNanos Maximum time to wait in nanoseconds
+    * @return true if there is new data available, false if there was no new data before the timeout
+    */
+   public boolean awaitPoll(long timeoutNanos)
+   {
+      if (poll())
+      {
+         return true;
+      }
+
+      long deadline = System.nanoTime() + timeoutNanos;
+      int idleCount = 0;
+      boolean available;
+      while (!(available = poll()))
+      {
+         long remainingNanos = deadline - System.nanoTime();
+         if (remainingNanos <= 0)
+         {
+            break;
+         }
+         consumerWaitStrategy.idle(idleCount++, remainingNanos);
+      }
+
+      consumerWaitStrategy.waitCompleted();
+      return available;
+   }
+
    /**
     * Reads next data object. Run @see{poll} to update the read limit.
     * 
@@ -196,7 +411,51 @@ public class ConcurrentRingBuffer<T>
     */
    public void flush()
    {
-      consumerPosition.set(readPosition);
+      // The release store orders all reads of the flushed objects before the producer can reuse them
+      consumerPosition.setRelease(readPosition);
+      flushedPosition = readPosition;
+      producerWaitStrategy.signal();
+   }
+
+   private void updateHighWaterMark()
+   {
+      // Computed by the consumer from its own positions, so the producer never reads the consumer's cache line
+      long occupancy = readLimit - flushedPosition;
+      if (occupancy > highWaterMark)
+      {
+         HIGH_WATER_MARK.setOpaque(this, occupancy);
+      }
+   }
+
+   /**
+    * Get latest data from the producer, pass up to maxCount objects to the handler and flush once.
+    * Replaces a poll/read/flush sequence.
+    * 
+    * @param handler Callback for each object
+    * @param maxCount Maximum number of objects to pass to the handler
+    * @return Number of objects passed to the handler
+    */
+   public int drain(EntryHandler<? super T> handler, int maxCount)
+   {
+      readLimit = commitPosition.getAcquire();
+
+      long lastPosition = Math.min(readLimit, readPosition + maxCount);
+      if (lastPosition <= readPosition)
+      {
+         EMPTY_POLL_COUNT.setOpaque(this, emptyPollCount + 1);
+         return 0;
+      }
+      updateHighWaterMark();
+
+      int count = (int) (lastPosition - readPosition);
+      for (long position = readPosition + 1; position <= lastPosition; position++)
+      {
+         handler.onEntry(getObject(position));
+      }
+      readPosition = lastPosition;
+
+      flush();
+      return count;
    }
    
    
@@ -210,11 +469,59 @@ public class ConcurrentRingBuffer<T>
    }
 
    /**
-    * Public function to avoid removal of padding
+    * Number of entries committed but not flushed yet. Can be called from any thread. Before the
+    * consumer flushed for the first time the result can be one entry low.
     * 
-    * @return sum of p
+    * @return Occupancy of the buffer
+    */
+   public long getOccupancy()
+   {
+      long occupancy = commitPosition.getOpaque() - consumerPosition.getOpaque();
+      return Math.max(0, Math.min(capacity, occupancy));
+   }
+
+   /**
+    * @return Number of calls to commit(). Can be called from any thread.
+    */
+   public long getCommitCount()
+   {
+      return (long) COMMIT_COUNT.getOpaque(this);
+   }
+
+   /**
+    * @return Number of times next() did not get an object because the buffer was full. Can be called from any thread.
+    */
+   public long getProducerFullCount()
+   {
+      return (long) PRODUCER_FULL_COUNT.getOpaque(this);
+   }
+
+   /**
+    * Highest occupancy seen by the consumer when poll() or drain() found new data, the number of
+    * committed entries that were not flushed yet. Entries that are committed and flushed between two
+    * polls are not seen. Can be called from any thread.
     * 
+    * @return High-water mark of the occupancy
+    */
+   public long getHighWaterMark()
+   {
+      return (long) HIGH_WATER_MARK.getOpaque(this);
+   }
+
+   /**
+    * @return Number of calls to poll() or drain() that found no new data. Can be called from any thread.
+    */
+   public long getEmptyPollCount()
+   {
+      return (long) EMPTY_POLL_COUNT.getOpaque(this);
+   }
+
+   /**
+    * @deprecated The padding fields are unused. Kept for compatibility.
+    * 
+    * @return sum of p
     */
+   @Deprecated
    public long avoidPaddingRemoval()
    {
       return p1 + p2 + p3 + p4 + p5 + p6 + p7 + p8 + p9 + p10 + p11 + p12 + p13 + p14;
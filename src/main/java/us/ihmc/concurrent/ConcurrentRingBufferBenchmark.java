@@ -20,9 +20,36 @@ package us.ihmc.concurrent;
 
 public class ConcurrentRingBufferBenchmark
 {
+   private static final int[] BATCH_SIZES = {1, 8, 32, 128};
+
    public static void main(String[] args)
    {
       final long iterations = Long.parseLong(args[0]);
+
+      printResult("Per element", iterations, runPerElement(iterations));
+
+      for (int batchSize : BATCH_SIZES)
+      {
+         printResult("Batch size " + batchSize, iterations, runBatched(iterations, batchSize));
+      }
+   }
+
+   private static void printResult(String name, long iterations, long executionTime)
+   {
+      double executionTimeS = executionTime / 1000000000.0;
+      double average = iterations / executionTimeS;
+
+      System.out.println(name + ": " + iterations + " iterations, total execution time: " + executionTime + "ns; " + executionTimeS + "s.");
+      System.out.println(name + ": Average: " + average + " iterations/s");
+   }
+
+   /**
+    * Producer calls next() and commit() for every element, consumer reads elements one by one
+    * 
+    * @return execution time in ns
+    */
+   private static long runPerElement(final long iterations)
+   {
       final long writesPerIteration = 1L;
       
       final ConcurrentRingBuffer<MutableLong> concurrentRingBuffer = new ConcurrentRingBuffer<MutableLong>(new MutableLongBuilder(), 1024);
@@ -73,12 +100,46 @@ public class ConcurrentRingBufferBenchmark
          }
       }
 
-      long executionTime = System.nanoTime() - start;
-      double executionTimeS = executionTime / 1000000000.0;
-      double average = iterations / executionTimeS;
-      
-      System.out.println(iterations + " iterations, total execution time: " + executionTime + "ns; " + executionTimeS + "s.");
-      System.out.println("Average: " + average + " iterations/s");
+      return System.nanoTime() - start;
+   }
+
+   /**
+    * Producer claims and commits batchSize elements at once, consumer drains up to batchSize elements at once
+    * 
+    * @return execution time in ns
+    */
+   private static long runBatched(final long iterations, final int batchSize)
+   {
+      final ConcurrentRingBuffer<MutableLong> concurrentRingBuffer = new ConcurrentRingBuffer<MutableLong>(new MutableLongBuilder(), 1024);
+
+      // Producer
+      new Thread(new Runnable()
+      {
+         public void run()
+         {
+            for(long value = 0; value < iterations; value += batchSize)
+            {
+               int n = (int) Math.min(batchSize, iterations - value);
+               long first;
+               while((first = concurrentRingBuffer.next(n)) < 0);  // Spinlock
+               for(int i = 0; i < n; i++)
+               {
+                  concurrentRingBuffer.get(first + i).value = value + i;
+               }
+               concurrentRingBuffer.commit();
+            }
+         }
+      }).start();
+
+      VerifyingHandler handler = new VerifyingHandler();
+      long start = System.nanoTime();
+
+      while(handler.expected < iterations)
+      {
+         concurrentRingBuffer.drain(handler, batchSize);
+      }
+
+      return System.nanoTime() - start;
    }
    
    private static class MutableLong
@@ -93,4 +154,18 @@ public class ConcurrentRingBufferBenchmark
          return new MutableLong();
       }
    }
+
+   private static class VerifyingHandler implements EntryHandler<MutableLong>
+   {
+      private long expected = 0;
+
+      public void onEntry(MutableLong entry)
+      {
+         if(entry.value != expected)
+         {
+            throw new RuntimeException("Values not equal");
+         }
+         ++expected;
+      }
+   }
 }
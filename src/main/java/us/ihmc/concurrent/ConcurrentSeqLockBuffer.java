@@ -0,0 +1,291 @@
+package us.ihmc.concurrent;
+
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import us.ihmc.util.PaddedVolatileLong;
+
+/**
+ * Publishes the latest state from one producer thread to any number of consumer threads using a
+ * sequence lock. Lock-free and garbage-free.
+ * <p>
+ * The state lives in a single off-heap region and is accessed with typed accessors by byte offset.
+ * The producer makes the version odd, writes the state and makes the version even again. Consumers
+ * copy the state out optimistically and retry when the version changed while copying. Writing costs
+ * two ordered stores and no compare-and-set, but a consumer can starve if the producer writes
+ * continuously and the copy takes longer than the write period.
+ * <p>
+ * Writing:
+ *
+ * <pre>
+ * buffer.beginWrite();
+ * buffer.putDouble(0, x);
+ * buffer.endWrite();
+ * </pre>
+ *
+ * Reading:
+ *
+ * <pre>
+ * long version;
+ * do
+ * {
+ *    version = buffer.beginRead();
+ *    x = buffer.getDouble(0);
+ * }
+ * while (!buffer.validate(version));
+ * </pre>
+ *
+ * Values read before {@link #validate(long)} succeeds can be inconsistent and should not be acted upon.
+ * Only one producer is supported.
+ */
+public class ConcurrentSeqLockBuffer
+{
+   private final PaddedVolatileLong version = new PaddedVolatileLong(0);
+   private final ByteBuffer buffer;
+
+   /*
+    * Producer variables
+    */
+   private long writeVersion = 0;
+
+   /**
+    * @param size Size of the state in bytes
+    */
+   public ConcurrentSeqLockBuffer(int size)
+   {
+      if (size <= 0)
+      {
+         throw new IllegalArgumentException("Size <= 0");
+      }
+
+      buffer = ByteBuffer.allocateDirect(size).order(ByteOrder.nativeOrder());
+   }
+
+   /**
+    * Start writing the state. Consumers that read concurrently will retry.
+    */
+   public void beginWrite()
+   {
+      if ((writeVersion & 1) != 0)
+      {
+         throw new IllegalStateException("Already writing");
+      }
+
+      ++writeVersion;
+      version.setOpaque(writeVersion);
+
+      // Orders the odd version before the writes to the state
+      VarHandle.releaseFence();
+   }
+
+   /**
+    * Finish writing the state, making it visible to consumers
+    */
+   public void endWrite()
+   {
+      if ((writeVersion & 1) == 0)
+      {
+         throw new IllegalStateException("Not writing");
+      }
+
+      ++writeVersion;
+      version.setRelease(writeVersion);
+   }
+
+   /**
+    * Start reading the state. Waits while the producer is writing.
+    *
+    * @return Version to pass to {@link #validate(long)}
+    */
+   public long beginRead()
+   {
+      long currentVersion;
+      while (((currentVersion = version.getAcquire()) & 1) != 0)
+      {
+         Thread.onSpinWait();
+      }
+      return currentVersion;
+   }
+
+   /**
+    * Check if the values read since {@link #beginRead()} are consistent
+    *
+    * @param readVersion Version returned by {@link #beginRead()}
+    * @return true if the producer did not write in the meantime
+    */
+   public boolean validate(long readVersion)
+   {
+      // Orders the reads of the state before reading the version again
+      VarHandle.acquireFence();
+      return version.getOpaque() == readVersion;
+   }
+
+   /**
+    * Check if the producer published new state
+    *
+    * @param lastVersion Version of the last consistent read, 0 if nothing has been read yet
+    * @return true if there is newer state than lastVersion
+    */
+   public boolean hasNewData(long lastVersion)
+   {
+      return version.getAcquire() != lastVersion;
+   }
+
+   /**
+    * @return Current version, odd while the producer is writing
+    */
+   public long getVersion()
+   {
+      return version.getAcquire();
+   }
+
+   /**
+    * Copy doubles out of the state, retrying until the copy is consistent
+    *
+    * @param offset Offset in bytes
+    * @param destination Array to copy to
+    * @param destinationOffset Offset in the destination array
+    * @param length Number of doubles to copy
+    * @return Version of the copied state
+    */
+   public long readDoubles(int offset, double[] destination, int destinationOffset, int length)
+   {
+      long readVersion;
+      do
+      {
+         readVersion = beginRead();
+         getDoubles(offset, destination, destinationOffset, length);
+      }
+      while (!validate(readVersion));
+
+      return readVersion;
+   }
+
+   /**
+    * Copy longs out of the state, retrying until the copy is consistent
+    *
+    * @param offset Offset in bytes
+    * @param destination Array to copy to
+    * @param destinationOffset Offset in the destination array
+    * @param length Number of longs to copy
+    * @return Version of the copied state
+    */
+   public long readLongs(int offset, long[] destination, int destinationOffset, int length)
+   {
+      long readVersion;
+      do
+      {
+         readVersion = beginRead();
+         getLongs(offset, destination, destinationOffset, length);
+      }
+      while (!validate(readVersion));
+
+      return readVersion;
+   }
+
+   /**
+    * Write doubles to the state in a single update
+    *
+    * @param offset Offset in bytes
+    * @param source Array to copy from
+    * @param sourceOffset Offset in the source array
+    * @param length Number of doubles to copy
+    */
+   public void writeDoubles(int offset, double[] source, int sourceOffset, int length)
+   {
+      beginWrite();
+      putDoubles(offset, source, sourceOffset, length);
+      endWrite();
+   }
+
+   public void putDouble(int offset, double value)
+   {
+      buffer.putDouble(offset, value);
+   }
+
+   public void putLong(int offset, long value)
+   {
+      buffer.putLong(offset, value);
+   }
+
+   public void putInt(int offset, int value)
+   {
+      buffer.putInt(offset, value);
+   }
+
+   public void putByte(int offset, byte value)
+   {
+      buffer.put(offset, value);
+   }
+
+   public void putBoolean(int offset, boolean value)
+   {
+      buffer.put(offset, value ? (byte) 1 : (byte) 0);
+   }
+
+   public void putDoubles(int offset, double[] source, int sourceOffset, int length)
+   {
+      for (int i = 0; i < length; i++)
+      {
+         buffer.putDouble(offset + i * Double.BYTES, source[sourceOffset + i]);
+      }
+   }
+
+   public void putLongs(int offset, long[] source, int sourceOffset, int length)
+   {
+      for (int i = 0; i < length; i++)
+      {
+         buffer.putLong(offset + i * Long.BYTES, source[sourceOffset + i]);
+      }
+   }
+
+   public double getDouble(int offset)
+   {
+      return buffer.getDouble(offset);
+   }
+
+   public long getLong(int offset)
+   {
+      return buffer.getLong(offset);
+   }
+
+   public int getInt(int offset)
+   {
+      return buffer.getInt(offset);
+   }
+
+   public byte getByte(int offset)
+   {
+      return buffer.get(offset);
+   }
+
+   public boolean getBoolean(int offset)
+   {
+      return buffer.get(offset) != 0;
+   }
+
+   public void getDoubles(int offset, double[] destination, int destinationOffset, int length)
+   {
+      for (int i = 0; i < length; i++)
+      {
+         destination[destinationOffset + i] = buffer.getDouble(offset + i * Double.BYTES);
+      }
+   }
+
+   public void getLongs(int offset, long[] destination, int destinationOffset, int length)
+   {
+      for (int i = 0; i < length; i++)
+      {
+         destination[destinationOffset + i] = buffer.getLong(offset + i * Long.BYTES);
+      }
+   }
+
+   /**
+    * @return Size of the state in bytes
+    */
+   public int getSize()
+   {
+      return buffer.capacity();
+   }
+}
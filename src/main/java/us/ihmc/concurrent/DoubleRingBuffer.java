@@ -0,0 +1,116 @@
+package us.ihmc.concurrent;
+
+/**
+ * Concurrent lock-free and garbage-free cyclic buffer of double values, stored directly in a
+ * primitive array.
+ * <p>
+ * Only one producer and one consumer are supported. Every successful offer or poll publishes its
+ * values immediately; use the array variants to move many values with a single publication.
+ */
+public class DoubleRingBuffer extends PrimitiveRingBuffer
+{
+   private final double[] values;
+
+   /**
+    * @param capacity Capacity of the ring buffer, automatically rounded up to the next power of two
+    */
+   public DoubleRingBuffer(int capacity)
+   {
+      super(capacity);
+      values = new double[this.capacity];
+   }
+
+   /**
+    * Producer side. Write a value and make it visible to the consumer.
+    *
+    * @param value Value to write
+    * @return false if there is no space in the buffer
+    */
+   public boolean offer(double value)
+   {
+      if (getWritableCount(1) == 0)
+      {
+         return false;
+      }
+
+      values[getWriteIndex()] = value;
+      publish(1);
+      return true;
+   }
+
+   /**
+    * Producer side. Write as many values as fit in the buffer and make them visible to the consumer.
+    *
+    * @param source Array to copy values from
+    * @param offset Index of the first value in source
+    * @param length Number of values to write
+    * @return Number of values written
+    */
+   public int offer(double[] source, int offset, int length)
+   {
+      int count = getWritableCount(length);
+      int index = getWriteIndex();
+      int firstPart = Math.min(count, capacity - index);
+
+      System.arraycopy(source, offset, values, index, firstPart);
+      System.arraycopy(source, offset + firstPart, values, 0, count - firstPart);
+
+      publish(count);
+      return count;
+   }
+
+   /**
+    * Consumer side. Remove and return the oldest value.
+    *
+    * @param valueIfEmpty Value to return if the buffer is empty
+    * @return Oldest value, valueIfEmpty if the buffer is empty
+    */
+   public double poll(double valueIfEmpty)
+   {
+      if (getReadableCount(1) == 0)
+      {
+         return valueIfEmpty;
+      }
+
+      double value = values[getReadIndex()];
+      release(1);
+      return value;
+   }
+
+   /**
+    * Consumer side. Return the oldest value without removing it.
+    *
+    * @param valueIfEmpty Value to return if the buffer is empty
+    * @return Oldest value, valueIfEmpty if the buffer is empty
+    */
+   public double peek(double valueIfEmpty)
+   {
+      if (getReadableCount(1) == 0)
+      {
+         return valueIfEmpty;
+      }
+
+      return values[getReadIndex()];
+   }
+
+   /**
+    * Consumer side. Remove up to maxLength of the oldest values and copy them to destination.
+    *
+    * @param destination Array to copy values to
+    * @param offset Index in destination for the first value
+    * @param maxLength Maximum number of values to read
+    * @return Number of values read
+    */
+   public int poll(double[] destination, int offset, int maxLength)
+   {
+      int count = getReadableCount(maxLength);
+      int index = getReadIndex();
+      int firstPart = Math.min(count, capacity - index);
+
+      System.arraycopy(values, index, destination, offset, firstPart);
+      System.arraycopy(values, 0, destination, offset + firstPart, count - firstPart);
+
+      release(count);
+      return count;
+   }
+}
@@ -0,0 +1,106 @@
+package us.ihmc.concurrent;
+
+/**
+ * Concurrent lock-free and garbage-free cyclic buffer of fixed width tuples of double values, for
+ * example joint torques. The tuples are stored back to back in a single primitive array.
+ * <p>
+ * Only one producer and one consumer are supported. Every successful offer or poll publishes its
+ * tuples immediately; use the multi-tuple variants to move many tuples with a single publication.
+ */
+public class DoubleTupleRingBuffer extends PrimitiveRingBuffer
+{
+   private final int width;
+   private final double[] values;
+
+   /**
+    * @param width Number of values in a tuple
+    * @param capacity Capacity of the ring buffer in tuples, automatically rounded up to the next power
+    *           of two
+    */
+   public DoubleTupleRingBuffer(int width, int capacity)
+   {
+      super(capacity);
+
+      if (width <= 0)
+      {
+         throw new RuntimeException("Width <= 0");
+      }
+
+      this.width = width;
+      values = new double[this.capacity * width];
+   }
+
+   /**
+    * @return Number of values in a tuple
+    */
+   public int getWidth()
+   {
+      return width;
+   }
+
+   /**
+    * Producer side. Write a tuple and make it visible to the consumer.
+    *
+    * @param source Array holding the tuple
+    * @param offset Index of the first value of the tuple in source
+    * @return false if there is no space in the buffer
+    */
+   public boolean offer(double[] source, int offset)
+   {
+      return offer(source, offset, 1) == 1;
+   }
+
+   /**
+    * Producer side. Write as many tuples as fit in the buffer and make them visible to the consumer.
+    *
+    * @param source Array holding the tuples back to back
+    * @param offset Index of the first value of the first tuple in source
+    * @param tuples Number of tuples to write
+    * @return Number of tuples written
+    */
+   public int offer(double[] source, int offset, int tuples)
+   {
+      int count = getWritableCount(tuples);
+      int index = getWriteIndex();
+      int firstPart = Math.min(count, capacity - index);
+
+      System.arraycopy(source, offset, values, index * width, firstPart * width);
+      System.arraycopy(source, offset + firstPart * width, values, 0, (count - firstPart) * width);
+
+      publish(count);
+      return count;
+   }
+
+   /**
+    * Consumer side. Remove the oldest tuple and copy it to destination.
+    *
+    * @param destination Array to copy the tuple to
+    * @param offset Index in destination for the first value of the tuple
+    * @return false if the buffer is empty
+    */
+   public boolean poll(double[] destination, int offset)
+   {
+      return poll(destination, offset, 1) == 1;
+   }
+
+   /**
+    * Consumer side. Remove up to maxTuples of the oldest tuples and copy them to destination.
+    *
+    * @param destination Array to copy the tuples to, back to back
+    * @param offset Index in destination for the first value of the first tuple
+    * @param maxTuples Maximum number of tuples to read
+    * @return Number of tuples read
+    */
+   public int poll(double[] destination, int offset, int maxTuples)
+   {
+      int count = getReadableCount(maxTuples);
+      int index = getReadIndex();
+      int firstPart = Math.min(count, capacity - index);
+
+      System.arraycopy(values, index * width, destination, offset, firstPart * width);
+      System.arraycopy(values, 0, destination, offset + firstPart * width, (count - firstPart) * width);
+
+      release(count);
+      return count;
+   }
+}
@@ -0,0 +1,18 @@
+package us.ihmc.concurrent;
+
+/**
+ * Callback for entries drained from a buffer. Implementations are created once and reused, so
+ * draining does not allocate.
+ *
+ * @param <T> Class in buffer
+ */
+public interface EntryHandler<T>
+{
+   /**
+    * Called for every drained entry. The entry is only valid for the duration of the call, it is
+    * handed back to the producer after the drain.
+    *
+    * @param entry Entry read from the buffer
+    */
+   public void onEntry(T entry);
+}
@@ -0,0 +1,79 @@
+package us.ihmc.concurrent;
+
+import us.ihmc.concurrent.dataStructures.LatencyHistogram;
+
+/**
+ * {@link ConcurrentCopier} that measures how old the data is when it is read. Every commit is stamped
+ * with {@link System#nanoTime()} and the time from commit to the first read of that commit is
+ * recorded in a {@link LatencyHistogram} that other threads can snapshot.
+ * <p>
+ * Use this class in place of ConcurrentCopier while tuning; the base class has no instrumentation
+ * cost.
+ *
+ * @param <T> object
+ */
+public class InstrumentedConcurrentCopier<T> extends ConcurrentCopier<T>
+{
+   private final long[] commitTimes = new long[3];
+
+   /*
+    * Consumer variables
+    */
+   private final LatencyHistogram latency = new LatencyHistogram();
+   private long lastReadCommitTime = Long.MIN_VALUE;
+
+   public InstrumentedConcurrentCopier(Builder<? extends T> classBuilder)
+   {
+      super(classBuilder);
+   }
+
+   @Override
+   public void commit()
+   {
+      // The commit publishes the stamp together with the object
+      commitTimes[(int) currentlyBeingWritten] = System.nanoTime();
+      super.commit();
+   }
+
+   @Override
+   public T getCopyForReading()
+   {
+      T object = super.getCopyForReading();
+      if (object == null)
+      {
+         return null;
+      }
+
+      // The object being read is never written, so its stamp is stable
+      long commitTime = commitTimes[indexOf(object)];
+      if (commitTime != lastReadCommitTime)
+      {
+         latency.record(System.nanoTime() - commitTime);
+         lastReadCommitTime = commitTime;
+      }
+      return object;
+   }
+
+   private int indexOf(T object)
+   {
+      for (int i = 0; i < buffer.length; i++)
+      {
+         if (buffer[i] == object)
+         {
+            return i;
+         }
+      }
+      throw new RuntimeException("Object is not in the buffer");
+   }
+
+   /**
+    * Copy the commit to read latencies recorded so far. Can be called from any thread.
+    *
+    * @param destination Histogram to copy into
+    * @return true if the snapshot is consistent, see {@link LatencyHistogram#getSnapshot(LatencyHistogram)}
+    */
+   public boolean getLatencySnapshot(LatencyHistogram destination)
+   {
+      return latency.getSnapshot(destination);
+   }
+}
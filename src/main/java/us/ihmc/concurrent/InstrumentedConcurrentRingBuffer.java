@@ -0,0 +1,99 @@
+package us.ihmc.concurrent;
+
+import us.ihmc.concurrent.dataStructures.LatencyHistogram;
+
+/**
+ * {@link ConcurrentRingBuffer} that measures how long entries are in the buffer. Every commit is
+ * stamped with {@link System#nanoTime()} and the time from commit to read is recorded in a
+ * {@link LatencyHistogram} that other threads can snapshot.
+ * <p>
+ * Use this class in place of ConcurrentRingBuffer while tuning; the base class has no instrumentation
+ * cost.
+ *
+ * @param <T> Class in buffer
+ */
+public class InstrumentedConcurrentRingBuffer<T> extends ConcurrentRingBuffer<T>
+{
+   private final long[] commitTimes;
+   private final int timeMask;
+
+   /*
+    * Producer variables
+    */
+   private long lastStampedPosition = -1;
+
+   /*
+    * Consumer variables
+    */
+   private final LatencyHistogram latency = new LatencyHistogram();
+   private final RecordingHandler recordingHandler = new RecordingHandler();
+
+   public InstrumentedConcurrentRingBuffer(Builder<? extends T> classBuilder, int capacity)
+   {
+      super(classBuilder, capacity);
+
+      commitTimes = new long[(int) getCapacity()];
+      timeMask = commitTimes.length - 1;
+   }
+
+   @Override
+   public void commit()
+   {
+      // Stamp all entries written since the last commit. The commit publishes the stamps.
+      long now = System.nanoTime();
+      for (long position = lastStampedPosition + 1; position <= writePosition; position++)
+      {
+         commitTimes[(int) (position & timeMask)] = now;
+      }
+      lastStampedPosition = writePosition;
+
+      super.commit();
+   }
+
+   @Override
+   public T read()
+   {
+      T object = super.read();
+      if (object != null)
+      {
+         latency.record(System.nanoTime() - commitTimes[(int) (readPosition & timeMask)]);
+      }
+      return object;
+   }
+
+   @Override
+   public int drain(EntryHandler<? super T> handler, int maxCount)
+   {
+      // Record while handling, the commit times can be overwritten once the entries are flushed
+      recordingHandler.handler = handler;
+      recordingHandler.position = readPosition;
+      int count = super.drain(recordingHandler, maxCount);
+      recordingHandler.handler = null;
+      return count;
+   }
+
+   /**
+    * Copy the commit to read latencies recorded so far. Can be called from any thread.
+    *
+    * @param destination Histogram to copy into
+    * @return true if the snapshot is consistent, see {@link LatencyHistogram#getSnapshot(LatencyHistogram)}
+    */
+   public boolean getLatencySnapshot(LatencyHistogram destination)
+   {
+      return latency.getSnapshot(destination);
+   }
+
+   private class RecordingHandler implements EntryHandler<T>
+   {
+      private EntryHandler<? super T> handler;
+      private long position;
+
+      @Override
+      public void onEntry(T entry)
+      {
+         ++position;
+         latency.record(System.nanoTime() - commitTimes[(int) (position & timeMask)]);
+         handler.onEntry(entry);
+      }
+   }
+}
@@ -0,0 +1,168 @@
+package us.ihmc.concurrent;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.Consumer;
+
+/**
+ * Left-Right concurrency control for large read-mostly objects. Reads are wait-free and garbage-free
+ * for any number of readers; writers are serialized and may wait for readers.
+ * <p>
+ * There are two instances of the object. Readers read one instance while a writer modifies the other,
+ * then the writer switches readers over, waits until no reader can still be on the old instance and
+ * applies the same modification to it. Nothing is copied, but every modification runs twice and must
+ * therefore give the same result on both instances.
+ * <p>
+ * Every reader thread needs its own {@link Reader}, created with {@link #createReader()}. A reader marks
+ * that it is reading in one of two read indicators, selected by a version index, on its own cache line.
+ * This implements the algorithm described in "Left-Right: A Concurrency Control Technique with
+ * Wait-Free Population Oblivious Reads" by Pedro Ramalhete and Andreia Correia.
+ *
+ * @param <T> object
+ */
+public class LeftRight<T>
+{
+   /*
+    * Stride between readers in the read indicators, puts each reader on its own cache line
+    */
+   private static final int READER_STRIDE = 16;
+
+   private final T[] instances;
+   private final AtomicInteger leftRight = new AtomicInteger(0);
+   private final AtomicInteger versionIndex = new AtomicInteger(0);
+   private final AtomicIntegerArray readIndicators;
+
+   private final int maximumNumberOfReaders;
+   private int createdReaders = 0;
+
+   /**
+    * @param classBuilder Builder for the two instances, both instances must start out equal
+    * @param maximumNumberOfReaders Maximum number of readers
+    */
+   @SuppressWarnings("unchecked")
+   public LeftRight(Builder<? extends T> classBuilder, int maximumNumberOfReaders)
+   {
+      if (maximumNumberOfReaders < 1)
+      {
+         throw new IllegalArgumentException("Maximum number of readers < 1");
+      }
+
+      this.maximumNumberOfReaders = maximumNumberOfReaders;
+
+      instances = (T[]) new Object[2];
+      instances[0] = classBuilder.newInstance();
+      instances[1] = classBuilder.newInstance();
+
+      readIndicators = new AtomicIntegerArray((maximumNumberOfReaders + 1) * READER_STRIDE);
+   }
+
+   private static int getIndicatorIndex(int reader, int version)
+   {
+      return (reader + 1) * READER_STRIDE + version;
+   }
+
+   /**
+    * Create a new reader. Each reader thread needs its own reader.
+    *
+    * @return New reader
+    * @throws IllegalStateException if all readers have been created
+    */
+   public synchronized Reader createReader()
+   {
+      if (createdReaders >= maximumNumberOfReaders)
+      {
+         throw new IllegalStateException("Cannot create more than " + maximumNumberOfReaders + " readers");
+      }
+
+      return new Reader(createdReaders++);
+   }
+
+   /**
+    * Apply a modification to both instances. Writers are serialized and wait until readers left the
+    * instance that is modified second. Call from a non-realtime thread.
+    *
+    * @param modification Modification to apply, called once for each instance and must have the same
+    *           result on both
+    */
+   public synchronized void modify(Consumer<? super T> modification)
+   {
+      int readSide = leftRight.get();
+
+      modification.accept(instances[1 - readSide]);
+
+      // Move new readers to the modified instance and wait until all readers left the other one
+      leftRight.set(1 - readSide);
+      toggleVersionAndWait();
+
+      modification.accept(instances[readSide]);
+   }
+
+   private void toggleVersionAndWait()
+   {
+      int previousVersion = versionIndex.get();
+      int nextVersion = 1 - previousVersion;
+
+      // Readers that arrived on the next version before the previous toggle finished must leave first
+      waitForReaders(nextVersion);
+      versionIndex.set(nextVersion);
+      waitForReaders(previousVersion);
+   }
+
+   private void waitForReaders(int version)
+   {
+      for (int i = 0; i < createdReaders; i++)
+      {
+         int index = getIndicatorIndex(i, version);
+         while (readIndicators.get(index) != 0)
+         {
+            Thread.yield();
+         }
+      }
+   }
+
+   /**
+    * Handle for a single reader thread
+    */
+   public class Reader
+   {
+      private final int reader;
+      private int readVersion = -1;
+
+      private Reader(int reader)
+      {
+         this.reader = reader;
+      }
+
+      /**
+       * Start reading. Never blocks. Do not modify the returned instance and call {@link #endRead()} when
+       * done.
+       *
+       * @return Instance to read
+       */
+      public T startRead()
+      {
+         if (readVersion >= 0)
+         {
+            throw new IllegalStateException("Already reading");
+         }
+
+         readVersion = versionIndex.get();
+         readIndicators.set(getIndicatorIndex(reader, readVersion), 1);
+         return instances[leftRight.get()];
+      }
+
+      /**
+       * Finish reading. The instance returned by {@link #startRead()} can be modified after this call.
+       */
+      public void endRead()
+      {
+         if (readVersion < 0)
+         {
+            throw new IllegalStateException("Not reading");
+         }
+
+         readIndicators.setRelease(getIndicatorIndex(reader, readVersion), 0);
+         readVersion = -1;
+      }
+   }
+}
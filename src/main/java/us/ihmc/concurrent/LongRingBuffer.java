@@ -0,0 +1,116 @@
+package us.ihmc.concurrent;
+
+/**
+ * Concurrent lock-free and garbage-free cyclic buffer of long values, stored directly in a
+ * primitive array.
+ * <p>
+ * Only one producer and one consumer are supported. Every successful offer or poll publishes its
+ * values immediately; use the array variants to move many values with a single publication.
+ */
+public class LongRingBuffer extends PrimitiveRingBuffer
+{
+   private final long[] values;
+
+   /**
+    * @param capacity Capacity of the ring buffer, automatically rounded up to the next power of two
+    */
+   public LongRingBuffer(int capacity)
+   {
+      super(capacity);
+      values = new long[this.capacity];
+   }
+
+   /**
+    * Producer side. Write a value and make it visible to the consumer.
+    *
+    * @param value Value to write
+    * @return false if there is no space in the buffer
+    */
+   public boolean offer(long value)
+   {
+      if (getWritableCount(1) == 0)
+      {
+         return false;
+      }
+
+      values[getWriteIndex()] = value;
+      publish(1);
+      return true;
+   }
+
+   /**
+    * Producer side. Write as many values as fit in the buffer and make them visible to the consumer.
+    *
+    * @param source Array to copy values from
+    * @param offset Index of the first value in source
+    * @param length Number of values to write
+    * @return Number of values written
+    */
+   public int offer(long[] source, int offset, int length)
+   {
+      int count = getWritableCount(length);
+      int index = getWriteIndex();
+      int firstPart = Math.min(count, capacity - index);
+
+      System.arraycopy(source, offset, values, index, firstPart);
+      System.arraycopy(source, offset + firstPart, values, 0, count - firstPart);
+
+      publish(count);
+      return count;
+   }
+
+   /**
+    * Consumer side. Remove and return the oldest value.
+    *
+    * @param valueIfEmpty Value to return if the buffer is empty
+    * @return Oldest value, valueIfEmpty if the buffer is empty
+    */
+   public long poll(long valueIfEmpty)
+   {
+      if (getReadableCount(1) == 0)
+      {
+         return valueIfEmpty;
+      }
+
+      long value = values[getReadIndex()];
+      release(1);
+      return value;
+   }
+
+   /**
+    * Consumer side. Return the oldest value without removing it.
+    *
+    * @param valueIfEmpty Value to return if the buffer is empty
+    * @return Oldest value, valueIfEmpty if the buffer is empty
+    */
+   public long peek(long valueIfEmpty)
+   {
+      if (getReadableCount(1) == 0)
+      {
+         return valueIfEmpty;
+      }
+
+      return values[getReadIndex()];
+   }
+
+   /**
+    * Consumer side. Remove up to maxLength of the oldest values and copy them to destination.
+    *
+    * @param destination Array to copy values to
+    * @param offset Index in destination for the first value
+    * @param maxLength Maximum number of values to read
+    * @return Number of values read
+    */
+   public int poll(long[] destination, int offset, int maxLength)
+   {
+      int count = getReadableCount(maxLength);
+      int index = getReadIndex();
+      int firstPart = Math.min(count, capacity - index);
+
+      System.arraycopy(values, index, destination, offset, firstPart);
+      System.arraycopy(values, 0, destination, offset + firstPart, count - firstPart);
+
+      release(count);
+      return count;
+   }
+}
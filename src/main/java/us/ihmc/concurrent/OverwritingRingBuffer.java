@@ -0,0 +1,221 @@
+package us.ihmc.concurrent;
+
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import us.ihmc.concurrent.runtime.barrierScheduler.implicitContext.tasks.InPlaceCopyable;
+import us.ihmc.util.PaddedVolatileLong;
+import us.ihmc.util.RealtimeTools;
+
+/**
+ * Cyclic buffer that overwrites the oldest entries when the consumer falls behind, for use as an
+ * always-on recorder of the last entries of a realtime thread. Lock-free and garbage-free.
+ * <p>
+ * Unlike {@link ConcurrentRingBuffer}, the producer never fails or waits. Each slot carries a stamp
+ * that is odd while the slot is written. The consumer copies entries into its own objects and checks
+ * the stamp afterwards, so entries that are overwritten while copying are detected and counted as
+ * lost instead of returned torn.
+ * <p>
+ * Only one producer and one consumer are supported. Snapshots can be taken from any thread.
+ *
+ * @param <T> Class in buffer
+ */
+public class OverwritingRingBuffer<T extends InPlaceCopyable<T>>
+{
+   private final T[] buffer;
+   private final AtomicLongArray stamps;
+   private final int capacity;
+   private final int capacityMask;
+
+   private final PaddedVolatileLong commitPosition = new PaddedVolatileLong(-1);
+
+   /*
+    * Producer variables
+    */
+   private long writePosition = -1;
+
+   /*
+    * Consumer variables
+    */
+   private long readPosition = -1;
+   private long lostCount = 0;
+
+   /**
+    * @param classBuilder Builder for the objects in the buffer
+    * @param capacity Capacity of the buffer, automatically rounded up to the next power of two
+    */
+   @SuppressWarnings({"unchecked", "rawtypes"})
+   public OverwritingRingBuffer(Builder<? extends T> classBuilder, int capacity)
+   {
+      if (capacity < 0)
+      {
+         throw new RuntimeException("Capacity < 0");
+      }
+
+      this.capacity = RealtimeTools.nextPowerOfTwo(capacity);
+      this.capacityMask = this.capacity - 1;
+
+      buffer = (T[]) new InPlaceCopyable[this.capacity];
+      for (int i = 0; i < this.capacity; i++)
+      {
+         buffer[i] = classBuilder.newInstance();
+      }
+
+      stamps = new AtomicLongArray(this.capacity);
+   }
+
+   private int getIndex(long position)
+   {
+      return (int) (position & capacityMask);
+   }
+
+   private static long getCommittedStamp(long position)
+   {
+      return 2 * position + 2;
+   }
+
+   /**
+    * Get the next object to write, overwriting the oldest entry if the buffer is full. Call
+    * {@link #commit()} after every call to next().
+    *
+    * @return Object to write to
+    */
+   public T next()
+   {
+      ++writePosition;
+      int index = getIndex(writePosition);
+
+      // Mark the slot as being written before changing its contents
+      stamps.setOpaque(index, getCommittedStamp(writePosition) - 1);
+      VarHandle.releaseFence();
+
+      return buffer[index];
+   }
+
+   /**
+    * Make the object returned by {@link #next()} visible to the consumer
+    */
+   public void commit()
+   {
+      stamps.setRelease(getIndex(writePosition), getCommittedStamp(writePosition));
+      commitPosition.setRelease(writePosition);
+   }
+
+   /**
+    * Copy the entry at position into destination
+    *
+    * @return false if the entry was overwritten before or while copying
+    */
+   private boolean copy(long position, T destination)
+   {
+      int index = getIndex(position);
+      long stamp = getCommittedStamp(position);
+      if (stamps.getAcquire(index) != stamp)
+      {
+         return false;
+      }
+
+      destination.copyFrom(buffer[index]);
+
+      // Orders the copy before checking the stamp again
+      VarHandle.acquireFence();
+      return stamps.getOpaque(index) == stamp;
+   }
+
+   /**
+    * Copy the oldest unread entry into destination. Entries that have been overwritten since the last
+    * read are skipped and added to the lost count.
+    *
+    * @param destination Object to copy the entry into
+    * @return true if an entry was copied, false if there are no unread entries
+    */
+   public boolean read(T destination)
+   {
+      while (true)
+      {
+         long limit = commitPosition.getAcquire();
+         long position = readPosition + 1;
+         if (position > limit)
+         {
+            return false;
+         }
+
+         long oldest = limit - capacity + 1;
+         if (position < oldest)
+         {
+            lostCount += oldest - position;
+            position = oldest;
+         }
+
+         readPosition = position;
+         if (copy(position, destination))
+         {
+            return true;
+         }
+
+         // The producer lapped the consumer while copying
+         ++lostCount;
+      }
+   }
+
+   /**
+    * Copy the most recent entries into destination, oldest first. Does not change the read position
+    * and can be called from any thread.
+    *
+    * @param destination Objects to copy into, at most destination.length entries are copied
+    * @return Number of entries copied into destination[0] to destination[count - 1]
+    */
+   public int snapshot(T[] destination)
+   {
+      long limit = commitPosition.getAcquire();
+      long start = Math.max(0, Math.max(limit - destination.length + 1, limit - capacity + 1));
+      int length = (int) (limit - start + 1);
+
+      // Copy newest first, the producer overwrites the oldest entries
+      int first = 0;
+      for (long position = limit; position >= start; position--)
+      {
+         if (!copy(position, destination[(int) (position - start)]))
+         {
+            first = (int) (position - start) + 1;
+            break;
+         }
+      }
+
+      // Move the copied entries to the start of the array without allocating
+      if (first > 0)
+      {
+         reverse(destination, 0, first);
+         reverse(destination, first, length);
+         reverse(destination, 0, length);
+      }
+
+      return length - first;
+   }
+
+   private static void reverse(Object[] array, int from, int to)
+   {
+      for (int i = from, j = to - 1; i < j; i++, j--)
+      {
+         Object tmp = array[i];
+         array[i] = array[j];
+         array[j] = tmp;
+      }
+   }
+
+   /**
+    * @return Number of entries that were overwritten before the consumer could read them
+    */
+   public long getLostCount()
+   {
+      return lostCount;
+   }
+
+   /**
+    * @return Capacity of the cyclic buffer
+    */
+   public int getCapacity()
+   {
+      return capacity;
+   }
+}
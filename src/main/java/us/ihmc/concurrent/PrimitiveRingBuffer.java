@@ -0,0 +1,166 @@
+package us.ihmc.concurrent;
+
+import us.ihmc.util.PaddedVolatileLong;
+import us.ihmc.util.RealtimeTools;
+
+/**
+ * Cursors shared by the lock-free and garbage-free ring buffers that store primitive values
+ * directly in arrays instead of in preallocated objects.
+ * <p>
+ * The producer and consumer positions follow the same padded-cursor design as
+ * {@link ConcurrentRingBuffer}. The consumer position is the last released element, so the full
+ * capacity can be used. Only one producer and one consumer are supported.
+ */
+public abstract class PrimitiveRingBuffer
+{
+   /*
+    * Producer variables
+    */
+   private long writePosition = -1;
+   private long cachedMaxWritePosition = -1;
+   private final PaddedVolatileLong commitPosition = new PaddedVolatileLong(-1);
+
+   public volatile long p1, p2, p3, p4, p5, p6, p7 = 8L;
+
+   /*
+    * Consumer variables
+    */
+   private long readLimit = -1;
+   private long readPosition = -1;
+   private final PaddedVolatileLong consumerPosition = new PaddedVolatileLong(-1);
+
+   // More padding
+   public volatile long p8, p9, p10, p11, p12, p13, p14 = 15L;
+
+   protected final int capacity;
+   private final int capacityMask;
+
+   /**
+    * @param capacity Capacity of the ring buffer, automatically rounded up to the next power of two
+    */
+   protected PrimitiveRingBuffer(int capacity)
+   {
+      if (capacity < 0)
+      {
+         throw new RuntimeException("Capacity < 0");
+      }
+
+      this.capacity = RealtimeTools.nextPowerOfTwo(capacity);
+      this.capacityMask = this.capacity - 1;
+   }
+
+   /**
+    * @return Index of the next element to write
+    */
+   protected int getWriteIndex()
+   {
+      return (int) ((writePosition + 1) & capacityMask);
+   }
+
+   /**
+    * @return Index of the next element to read
+    */
+   protected int getReadIndex()
+   {
+      return (int) ((readPosition + 1) & capacityMask);
+   }
+
+   /**
+    * Producer side. Number of elements that can be written without overwriting unread data.
+    *
+    * @param maximum Maximum number of elements the producer wants to write
+    * @return Number of elements that can be written, at most maximum
+    */
+   protected int getWritableCount(int maximum)
+   {
+      if (writePosition + maximum >= cachedMaxWritePosition)
+      {
+         cachedMaxWritePosition = consumerPosition.getAcquire() + capacity + 1;
+      }
+      return (int) Math.min(maximum, cachedMaxWritePosition - writePosition - 1);
+   }
+
+   /**
+    * Producer side. Make the next count elements visible to the consumer.
+    */
+   protected void publish(int count)
+   {
+      if (count == 0)
+      {
+         return;
+      }
+
+      writePosition += count;
+
+      // Writing to commitPosition inserts a memory write barrier
+      commitPosition.setRelease(writePosition);
+   }
+
+   /**
+    * Consumer side. Number of elements that can be read.
+    *
+    * @param maximum Maximum number of elements the consumer wants to read
+    * @return Number of elements that can be read, at most maximum
+    */
+   protected int getReadableCount(int maximum)
+   {
+      if (readPosition + maximum > readLimit)
+      {
+         // Reading from commitPosition inserts a memory read barrier
+         readLimit = commitPosition.getAcquire();
+      }
+      return (int) Math.min(maximum, readLimit - readPosition);
+   }
+
+   /**
+    * Consumer side. Release the next count elements, making them available for writing.
+    */
+   protected void release(int count)
+   {
+      if (count == 0)
+      {
+         return;
+      }
+
+      readPosition += count;
+      consumerPosition.setRelease(readPosition);
+   }
+
+   /**
+    * Consumer side.
+    *
+    * @return true if there is no data to read
+    */
+   public boolean isEmpty()
+   {
+      return getReadableCount(1) == 0;
+   }
+
+   /**
+    * Consumer side.
+    *
+    * @return Number of elements that can be read
+    */
+   public int size()
+   {
+      return getReadableCount(capacity);
+   }
+
+   /**
+    * @return Capacity of the cyclic buffer in elements
+    */
+   public long getCapacity()
+   {
+      return this.capacity;
+   }
+
+   /**
+    * Public function to avoid removal of padding
+    *
+    * @return sum of p
+    */
+   public long avoidPaddingRemoval()
+   {
+      return p1 + p2 + p3 + p4 + p5 + p6 + p7 + p8 + p9 + p10 + p11 + p12 + p13 + p14;
+   }
+}
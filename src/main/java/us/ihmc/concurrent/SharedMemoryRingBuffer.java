@@ -0,0 +1,377 @@
+package us.ihmc.concurrent;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+import us.ihmc.util.RealtimeTools;
+
+/**
+ * Lock-free and garbage-free cyclic buffer of fixed size byte slots in a memory-mapped file, for
+ * communication between a producer and a consumer in different processes on the same computer.
+ * <p>
+ * The file starts with a header holding the format version, capacity and slot size, followed by
+ * the producer and consumer positions, each on its own cache line, and the slots. Because all
+ * state lives in the file, either side can attach to an existing buffer, and reattach after a
+ * crash, and continue from the last committed and flushed positions. Map the file on a memory
+ * backed file system such as /dev/shm to avoid disk writes.
+ * <p>
+ * Only one producer and one consumer are supported. Slots are returned as byte buffers of
+ * {@link #getSlotSize()} bytes; only use absolute get and put methods on them.
+ */
+public class SharedMemoryRingBuffer
+{
+   public static final int MAGIC = 0x49484D43; // IHMC
+   public static final int VERSION = 1;
+
+   private static final int CACHE_LINE_SIZE = 64;
+
+   private static final int MAGIC_OFFSET = 0;
+   private static final int VERSION_OFFSET = 4;
+   private static final int CAPACITY_OFFSET = 8;
+   private static final int SLOT_SIZE_OFFSET = 12;
+   private static final int COMMIT_POSITION_OFFSET = CACHE_LINE_SIZE;
+   private static final int CONSUMER_POSITION_OFFSET = 2 * CACHE_LINE_SIZE;
+   private static final int HEADER_LENGTH = 3 * CACHE_LINE_SIZE;
+
+   private static final int MAXIMUM_CAPACITY = 1 << 30;
+
+   private static final VarHandle INT_HANDLE = MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.nativeOrder());
+   private static final VarHandle LONG_HANDLE = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.nativeOrder());
+
+   private final MappedByteBuffer memory;
+
+   /*
+    * Producer variables
+    */
+   private long writePosition;
+   private long cachedMaxWritePosition = -1;
+
+   /*
+    * Consumer variables
+    */
+   private long readLimit;
+   private long readPosition;
+
+   private final int capacity;
+   private final int capacityMask;
+   private final int slotSize;
+
+   private final ByteBuffer[] producerSlots;
+   private final ByteBuffer[] consumerSlots;
+
+   /**
+    * Create a new shared memory ring buffer, replacing the file if it exists
+    * <p>
+    * The buffer is initialized in a temporary file that is renamed into place, an existing file is
+    * never truncated. Processes that still map the replaced file keep a valid mapping of the old
+    * buffer instead of faulting on a truncated file; they have to attach again to see the new one.
+    *
+    * @param path File to map, for example a file in /dev/shm
+    * @param capacity Number of slots, automatically rounded up to the next power of two
+    * @param slotSize Size of a slot in bytes
+    * @return Shared memory ring buffer
+    * @throws IOException if the file cannot be created or mapped
+    */
+   public static SharedMemoryRingBuffer create(Path path, int capacity, int slotSize) throws IOException
+   {
+      if (capacity < 1)
+      {
+         throw new RuntimeException("Capacity < 1");
+      }
+      if (slotSize <= 0)
+      {
+         throw new RuntimeException("Slot size <= 0");
+      }
+      if (capacity > MAXIMUM_CAPACITY)
+      {
+         throw new RuntimeException("Capacity > " + MAXIMUM_CAPACITY);
+      }
+
+      capacity = RealtimeTools.nextPowerOfTwo(capacity);
+      long fileLength = getFileLength(capacity, slotSize);
+      if (fileLength > Integer.MAX_VALUE)
+      {
+         throw new RuntimeException("A ring buffer of " + fileLength + " bytes does not fit in a single mapping");
+      }
+
+      Path temporaryPath = path.resolveSibling(path.getFileName() + "." + ProcessHandle.current().pid() + ".tmp");
+      MappedByteBuffer memory;
+      try
+      {
+         try (FileChannel channel = FileChannel.open(temporaryPath, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE))
+         {
+            memory = channel.map(MapMode.READ_WRITE, 0, fileLength);
+         }
+         memory.order(ByteOrder.nativeOrder());
+         initialize(memory, capacity, slotSize);
+
+         Files.move(temporaryPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      }
+      finally
+      {
+         Files.deleteIfExists(temporaryPath);
+      }
+
+      return new SharedMemoryRingBuffer(memory);
+   }
+
+   private static void initialize(MappedByteBuffer memory, int capacity, int slotSize)
+   {
+      memory.putInt(VERSION_OFFSET, VERSION);
+      memory.putInt(CAPACITY_OFFSET, capacity);
+      memory.putInt(SLOT_SIZE_OFFSET, slotSize);
+      LONG_HANDLE.setVolatile(memory, COMMIT_POSITION_OFFSET, -1L);
+      LONG_HANDLE.setVolatile(memory, CONSUMER_POSITION_OFFSET, -1L);
+
+      // Write the magic number last, an attaching process only accepts the header once it is complete
+      INT_HANDLE.setVolatile(memory, MAGIC_OFFSET, MAGIC);
+   }
+
+   /**
+    * Attach to an existing shared memory ring buffer
+    *
+    * @param path File created by {@link #create(Path, int, int)}
+    * @return Shared memory ring buffer, continuing from the last committed and flushed positions
+    * @throws IOException if the file cannot be mapped or does not contain a compatible ring buffer
+    */
+   public static SharedMemoryRingBuffer attach(Path path) throws IOException
+   {
+      MappedByteBuffer memory;
+      try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE))
+      {
+         if (channel.size() < HEADER_LENGTH)
+         {
+            throw new IOException(path + " is too small to hold a ring buffer");
+         }
+         if (channel.size() > Integer.MAX_VALUE)
+         {
+            throw new IOException(path + " is too large to hold a ring buffer");
+         }
+
+         memory = channel.map(MapMode.READ_WRITE, 0, channel.size());
+      }
+      memory.order(ByteOrder.nativeOrder());
+
+      if ((int) INT_HANDLE.getVolatile(memory, MAGIC_OFFSET) != MAGIC)
+      {
+         throw new IOException(path + " does not contain an initialized ring buffer");
+      }
+      if (memory.getInt(VERSION_OFFSET) != VERSION)
+      {
+         throw new IOException("Incompatible ring buffer version " + memory.getInt(VERSION_OFFSET) + ", expected " + VERSION);
+      }
+      int capacity = memory.getInt(CAPACITY_OFFSET);
+      int slotSize = memory.getInt(SLOT_SIZE_OFFSET);
+      if (capacity < 1 || capacity > MAXIMUM_CAPACITY || Integer.bitCount(capacity) != 1)
+      {
+         throw new IOException(path + " has an invalid capacity " + capacity);
+      }
+      if (slotSize <= 0)
+      {
+         throw new IOException(path + " has an invalid slot size " + slotSize);
+      }
+      if (memory.capacity() < getFileLength(capacity, slotSize))
+      {
+         throw new IOException(path + " is smaller than its header describes");
+      }
+
+      return new SharedMemoryRingBuffer(memory);
+   }
+
+   /**
+    * Attach to an existing shared memory ring buffer with the given layout, or create a new one if the
+    * file does not exist or does not hold an initialized buffer of this version. Only one of the
+    * processes should create the buffer at a time.
+    *
+    * @param path File to map, for example a file in /dev/shm
+    * @param capacity Number of slots, automatically rounded up to the next power of two
+    * @param slotSize Size of a slot in bytes
+    * @return Shared memory ring buffer
+    * @throws IOException if the file cannot be created or mapped, or holds a ring buffer with a
+    *            different layout. Such a buffer can still be in use and is not replaced.
+    */
+   public static SharedMemoryRingBuffer createOrAttach(Path path, int capacity, int slotSize) throws IOException
+   {
+      if (Files.exists(path))
+      {
+         SharedMemoryRingBuffer existing;
+         try
+         {
+            existing = attach(path);
+         }
+         catch (IOException e)
+         {
+            // Not a compatible ring buffer, replace it
+            return create(path, capacity, slotSize);
+         }
+
+         if (existing.getCapacity() != RealtimeTools.nextPowerOfTwo(capacity) || existing.getSlotSize() != slotSize)
+         {
+            throw new IOException(path + " holds a ring buffer with capacity " + existing.getCapacity() + " and slot size "
+                  + existing.getSlotSize() + ", use create() to replace it");
+         }
+         return existing;
+      }
+
+      return create(path, capacity, slotSize);
+   }
+
+   private static int getSlotStride(int slotSize)
+   {
+      return RealtimeTools.nextDivisibleByEight(slotSize - 1);
+   }
+
+   private static long getFileLength(int capacity, int slotSize)
+   {
+      return HEADER_LENGTH + (long) capacity * getSlotStride(slotSize);
+   }
+
+   private SharedMemoryRingBuffer(MappedByteBuffer memory)
+   {
+      this.memory = memory;
+      this.capacity = memory.getInt(CAPACITY_OFFSET);
+      this.capacityMask = capacity - 1;
+      this.slotSize = memory.getInt(SLOT_SIZE_OFFSET);
+
+      int slotStride = getSlotStride(slotSize);
+      producerSlots = new ByteBuffer[capacity];
+      consumerSlots = new ByteBuffer[capacity];
+      for (int i = 0; i < capacity; i++)
+      {
+         long offset = HEADER_LENGTH + (long) i * slotStride;
+         if (offset + slotSize > memory.capacity())
+         {
+            throw new IllegalStateException("Slot " + i + " does not fit in the mapped memory");
+         }
+         producerSlots[i] = memory.slice((int) offset, slotSize).order(ByteOrder.nativeOrder());
+         consumerSlots[i] = memory.slice((int) offset, slotSize).order(ByteOrder.nativeOrder());
+      }
+
+      // Continue from the positions stored in shared memory
+      writePosition = getCommitPosition();
+      readPosition = getConsumerPosition();
+      readLimit = readPosition;
+   }
+
+   private long getCommitPosition()
+   {
+      return (long) LONG_HANDLE.getAcquire(memory, COMMIT_POSITION_OFFSET);
+   }
+
+   private long getConsumerPosition()
+   {
+      return (long) LONG_HANDLE.getAcquire(memory, CONSUMER_POSITION_OFFSET);
+   }
+
+   /**
+    * Get a new slot for writing, return null if there is no space in the buffer
+    *
+    * @return Slot for writing
+    */
+   public ByteBuffer next()
+   {
+      ++writePosition;
+      if (writePosition >= cachedMaxWritePosition)
+      {
+         cachedMaxWritePosition = getConsumerPosition() + capacity + 1;
+         if (writePosition >= cachedMaxWritePosition)
+         {
+            --writePosition;
+            return null;
+         }
+      }
+      return producerSlots[(int) (writePosition & capacityMask)];
+   }
+
+   /**
+    * Make all slots set using @see{next} since last commit visible to the consumer
+    */
+   public void commit()
+   {
+      LONG_HANDLE.setRelease(memory, COMMIT_POSITION_OFFSET, writePosition);
+   }
+
+   /**
+    * Get latest data from producer. Run before a sequence of @see{read}
+    *
+    * @return true if there is new data available
+    */
+   public boolean poll()
+   {
+      readLimit = getCommitPosition();
+
+      if (readPosition < readLimit)
+      {
+         return true;
+      }
+      else
+      {
+         return false;
+      }
+   }
+
+   /**
+    * Reads next slot. Run @see{poll} to update the read limit.
+    *
+    * @return new data, null if no new data
+    */
+   public ByteBuffer read()
+   {
+      if (readPosition >= readLimit)
+      {
+         return null;
+      }
+      ++readPosition;
+
+      return consumerSlots[(int) (readPosition & capacityMask)];
+   }
+
+   /**
+    * Get next slot. Run @see{poll} to update the read limit. Does not advance the read position.
+    *
+    * @return new data, null if no new data
+    */
+   public ByteBuffer peek()
+   {
+      if (readPosition >= readLimit)
+      {
+         return null;
+      }
+
+      return consumerSlots[(int) ((readPosition + 1) & capacityMask)];
+   }
+
+   /**
+    * Flushes read slots, making them available for writing. Call after @see{read}
+    */
+   public void flush()
+   {
+      LONG_HANDLE.setRelease(memory, CONSUMER_POSITION_OFFSET, readPosition);
+   }
+
+   /**
+    * @return Capacity of the cyclic buffer
+    */
+   public long getCapacity()
+   {
+      return this.capacity;
+   }
+
+   /**
+    * @return Size of a slot in bytes
+    */
+   public int getSlotSize()
+   {
+      return slotSize;
+   }
+}
@@ -0,0 +1,322 @@
+package us.ihmc.concurrent;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import us.ihmc.concurrent.runtime.barrierScheduler.implicitContext.tasks.InPlaceCopyable;
+import us.ihmc.realtime.MonotonicTime;
+import us.ihmc.util.PaddedVolatileLong;
+import us.ihmc.util.RealtimeTools;
+
+/**
+ * History of timestamped entries for looking up the state at a given time, for example to align
+ * delayed measurements with earlier estimator states. Lock-free and garbage-free.
+ * <p>
+ * One writer appends entries with increasing timestamps, overwriting the oldest entries. Any number
+ * of readers can look up entries by time: a binary search finds the entries bracketing the requested
+ * time and an {@link Interpolator} combines them into an object supplied by the reader. Every slot
+ * carries a stamp that is odd while it is written; readers check the stamps of the bracketing entries
+ * after interpolating and retry if the writer overwrote them in the meantime.
+ * <p>
+ * Timestamps are monotonic time in nanoseconds, see {@link MonotonicTime#asNanoseconds()}.
+ *
+ * @param <T> Class in buffer
+ */
+public class TimestampedHistoryBuffer<T extends InPlaceCopyable<T>>
+{
+   /**
+    * Interpolates between two entries. Must not keep references to its arguments.
+    */
+   public interface Interpolator<T>
+   {
+      /**
+       * @param before Entry at or before the requested time
+       * @param after Entry after the requested time
+       * @param alpha Fraction of the time between before and after, in [0, 1)
+       * @param result Object to store the interpolated entry in
+       */
+      void interpolate(T before, T after, double alpha, T result);
+   }
+
+   private static final VarHandle TIMESTAMPS = MethodHandles.arrayElementVarHandle(long[].class);
+
+   private final T[] buffer;
+   private final long[] timestamps;
+   private final AtomicLongArray stamps;
+   private final int capacity;
+   private final int capacityMask;
+
+   private final PaddedVolatileLong commitPosition = new PaddedVolatileLong(-1);
+
+   /*
+    * Writer variables
+    */
+   private long writePosition = -1;
+   private long lastTimestamp = Long.MIN_VALUE;
+
+   /**
+    * @param classBuilder Builder for the objects in the buffer
+    * @param capacity Capacity of the buffer, automatically rounded up to the next power of two. One
+    *           entry is reserved for the writer, readers can look up capacity - 1 entries.
+    */
+   @SuppressWarnings({"unchecked", "rawtypes"})
+   public TimestampedHistoryBuffer(Builder<? extends T> classBuilder, int capacity)
+   {
+      if (capacity < 2)
+      {
+         throw new IllegalArgumentException("Capacity < 2");
+      }
+
+      this.capacity = RealtimeTools.nextPowerOfTwo(capacity);
+      this.capacityMask = this.capacity - 1;
+
+      buffer = (T[]) new InPlaceCopyable[this.capacity];
+      for (int i = 0; i < this.capacity; i++)
+      {
+         buffer[i] = classBuilder.newInstance();
+      }
+
+      timestamps = new long[this.capacity];
+      stamps = new AtomicLongArray(this.capacity);
+   }
+
+   private int getIndex(long position)
+   {
+      return (int) (position & capacityMask);
+   }
+
+   private static long getCommittedStamp(long position)
+   {
+      return 2 * position + 2;
+   }
+
+   /**
+    * Get the object to write the next entry to, overwriting the oldest entry. Call {@link #commit()}
+    * after every call to next().
+    *
+    * @param timestamp Time of the entry in nanoseconds, must be later than the previous entry
+    * @return Object to write to
+    */
+   public T next(long timestamp)
+   {
+      if (timestamp <= lastTimestamp)
+      {
+         throw new IllegalArgumentException("Timestamp " + timestamp + " is not after the previous timestamp " + lastTimestamp);
+      }
+      lastTimestamp = timestamp;
+
+      ++writePosition;
+      int index = getIndex(writePosition);
+
+      // Mark the slot as being written before changing its contents
+      stamps.setOpaque(index, getCommittedStamp(writePosition) - 1);
+      VarHandle.releaseFence();
+
+      TIMESTAMPS.setOpaque(timestamps, index, timestamp);
+      return buffer[index];
+   }
+
+   public T next(MonotonicTime time)
+   {
+      return next(time.asNanoseconds());
+   }
+
+   /**
+    * Make the entry returned by {@link #next(long)} visible to readers
+    */
+   public void commit()
+   {
+      stamps.setRelease(getIndex(writePosition), getCommittedStamp(writePosition));
+      commitPosition.setRelease(writePosition);
+   }
+
+   private long getTimestamp(long position)
+   {
+      return (long) TIMESTAMPS.getOpaque(timestamps, getIndex(position));
+   }
+
+   private boolean isCommitted(long position)
+   {
+      return stamps.getAcquire(getIndex(position)) == getCommittedStamp(position);
+   }
+
+   /**
+    * @return true if position still holds the same committed entry, after reading it
+    */
+   private boolean validate(long position)
+   {
+      VarHandle.acquireFence();
+      return stamps.getOpaque(getIndex(position)) == getCommittedStamp(position);
+   }
+
+   /**
+    * Get the entry at the given time, interpolating between the entries before and after it
+    *
+    * @param timestamp Time in nanoseconds
+    * @param result Object to store the entry in
+    * @param interpolator Interpolator for entries between two samples
+    * @return false if the time is not in the history, result is undefined in that case
+    */
+   public boolean get(long timestamp, T result, Interpolator<T> interpolator)
+   {
+      while (true)
+      {
+         long newest = commitPosition.getAcquire();
+         if (newest < 0)
+         {
+            return false;
+         }
+
+         // The writer can be overwriting the slot after the newest entry
+         long oldest = Math.max(0, newest - capacity + 2);
+         if (!isCommitted(oldest))
+         {
+            continue;
+         }
+
+         long oldestTimestamp = getTimestamp(oldest);
+         long newestTimestamp = getTimestamp(newest);
+         if (!validate(oldest))
+         {
+            continue;
+         }
+         if (timestamp < oldestTimestamp || timestamp > newestTimestamp)
+         {
+            return false;
+         }
+
+         // Find the last entry at or before the requested time
+         long low = oldest;
+         long high = newest;
+         while (low < high)
+         {
+            long middle = (low + high + 1) >>> 1;
+            if (getTimestamp(middle) <= timestamp)
+            {
+               low = middle;
+            }
+            else
+            {
+               high = middle - 1;
+            }
+         }
+
+         long before = low;
+         long beforeTimestamp = getTimestamp(before);
+         if (beforeTimestamp == timestamp || before == newest)
+         {
+            if (!isCommitted(before))
+            {
+               continue;
+            }
+            result.copyFrom(buffer[getIndex(before)]);
+            if (validate(before) && getTimestamp(before) == timestamp)
+            {
+               return true;
+            }
+            continue;
+         }
+
+         long after = before + 1;
+         if (!isCommitted(before) || !isCommitted(after))
+         {
+            continue;
+         }
+
+         long afterTimestamp = getTimestamp(after);
+         double alpha = (double) (timestamp - beforeTimestamp) / (double) (afterTimestamp - beforeTimestamp);
+         interpolator.interpolate(buffer[getIndex(before)], buffer[getIndex(after)], alpha, result);
+
+         // Retry if the writer overwrote the entries while interpolating, or the search used torn timestamps
+         if (validate(before) && validate(after) && beforeTimestamp <= timestamp && timestamp < afterTimestamp)
+         {
+            return true;
+         }
+      }
+   }
+
+   public boolean get(MonotonicTime time, T result, Interpolator<T> interpolator)
+   {
+      return get(time.asNanoseconds(), result, interpolator);
+   }
+
+   /**
+    * Copy the newest entry into result
+    *
+    * @return Timestamp of the newest entry, Long.MIN_VALUE if there are no entries
+    */
+   public long getNewest(T result)
+   {
+      while (true)
+      {
+         long newest = commitPosition.getAcquire();
+         if (newest < 0)
+         {
+            return Long.MIN_VALUE;
+         }
+
+         result.copyFrom(buffer[getIndex(newest)]);
+         long timestamp = getTimestamp(newest);
+         if (validate(newest))
+         {
+            return timestamp;
+         }
+      }
+   }
+
+   /**
+    * @return Timestamp of the newest entry, Long.MIN_VALUE if there are no entries
+    */
+   public long getNewestTimestamp()
+   {
+      while (true)
+      {
+         long newest = commitPosition.getAcquire();
+         if (newest < 0)
+         {
+            return Long.MIN_VALUE;
+         }
+
+         long timestamp = getTimestamp(newest);
+         if (validate(newest))
+         {
+            return timestamp;
+         }
+      }
+   }
+
+   /**
+    * @return Timestamp of the oldest entry that can be looked up, Long.MIN_VALUE if there are no entries
+    */
+   public long getOldestTimestamp()
+   {
+      while (true)
+      {
+         long newest = commitPosition.getAcquire();
+         if (newest < 0)
+         {
+            return Long.MIN_VALUE;
+         }
+
+         long oldest = Math.max(0, newest - capacity + 2);
+         if (!isCommitted(oldest))
+         {
+            continue;
+         }
+         long timestamp = getTimestamp(oldest);
+         if (validate(oldest))
+         {
+            return timestamp;
+         }
+      }
+   }
+
+   /**
+    * @return Capacity of the cyclic buffer
+    */
+   public int getCapacity()
+   {
+      return capacity;
+   }
+}
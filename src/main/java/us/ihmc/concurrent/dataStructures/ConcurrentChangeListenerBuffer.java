@@ -0,0 +1,132 @@
+package us.ihmc.concurrent.dataStructures;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Base class for thread-safe change listener buffers. Changed indices are tracked in a bitmap that
+ * producers update with an atomic OR. A consumer thread takes and clears the changed set one word at
+ * a time with {@link #takeChanged()} and iterates over the changed indices only with
+ * {@link #nextChanged(int)}.
+ * <p>
+ * Any number of threads can update values. Only one thread should take the changed set. A value
+ * that is updated while the consumer takes the changed set can be reported twice, but a change is
+ * never lost.
+ */
+public abstract class ConcurrentChangeListenerBuffer
+{
+   private static final VarHandle WORDS = MethodHandles.arrayElementVarHandle(long[].class);
+
+   private final int capacity;
+   private final long[] changed;
+
+   /*
+    * Consumer variables
+    */
+   private final long[] taken;
+
+   protected ConcurrentChangeListenerBuffer(int capacity)
+   {
+      if (capacity < 0)
+      {
+         throw new RuntimeException("Capacity < 0");
+      }
+
+      this.capacity = capacity;
+
+      int words = (capacity + Long.SIZE - 1) / Long.SIZE;
+      changed = new long[words];
+      taken = new long[words];
+   }
+
+   /**
+    * Mark the value at index as changed. Call after writing the value.
+    */
+   protected void markChanged(int index)
+   {
+      WORDS.getAndBitwiseOr(changed, index >>> 6, 1L << index);
+   }
+
+   /**
+    * Checks if value changed and resets the latch. Prefer {@link #takeChanged()} when checking many
+    * indices.
+    *
+    * @param index Index
+    * @return true if changed
+    */
+   public boolean hasChangedAndReset(int index)
+   {
+      long bit = 1L << index;
+      long word = (long) WORDS.getAcquire(changed, index >>> 6);
+      if ((word & bit) == 0)
+      {
+         return false;
+      }
+
+      return ((long) WORDS.getAndBitwiseAnd(changed, index >>> 6, ~bit) & bit) != 0;
+   }
+
+   /**
+    * Take and clear the set of changed indices. Iterate over the taken set with
+    * {@link #nextChanged(int)}.
+    *
+    * @return Number of changed indices
+    */
+   public int takeChanged()
+   {
+      int count = 0;
+      for (int i = 0; i < changed.length; i++)
+      {
+         // Skip the atomic swap for words without changes
+         if ((long) WORDS.getOpaque(changed, i) == 0)
+         {
+            taken[i] = 0;
+         }
+         else
+         {
+            taken[i] = (long) WORDS.getAndSet(changed, i, 0L);
+            count += Long.bitCount(taken[i]);
+         }
+      }
+      return count;
+   }
+
+   /**
+    * Find the next changed index in the set taken by {@link #takeChanged()}
+    * 
+    * <pre>
+    * buffer.takeChanged();
+    * for (int i = buffer.nextChanged(0); i >= 0; i = buffer.nextChanged(i + 1))
+    * {
+    *    process(buffer.getValue(i));
+    * }
+    * </pre>
+    *
+    * @param fromIndex Index to start searching from, inclusive
+    * @return Next changed index, -1 if there are no more changed indices
+    */
+   public int nextChanged(int fromIndex)
+   {
+      if (fromIndex >= capacity)
+      {
+         return -1;
+      }
+
+      int wordIndex = fromIndex >>> 6;
+      long word = taken[wordIndex] & (-1L << fromIndex);
+      while (word == 0)
+      {
+         if (++wordIndex == taken.length)
+         {
+            return -1;
+         }
+         word = taken[wordIndex];
+      }
+      return wordIndex * Long.SIZE + Long.numberOfTrailingZeros(word);
+   }
+
+   public int getCapacity()
+   {
+      return capacity;
+   }
+}
@@ -0,0 +1,48 @@
+package us.ihmc.concurrent.dataStructures;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Thread-safe variant of {@link ChangeListenerLongBuffer} for double values, see
+ * {@link ConcurrentChangeListenerBuffer}
+ */
+public class ConcurrentChangeListenerDoubleBuffer extends ConcurrentChangeListenerBuffer
+{
+   private static final VarHandle VALUES = MethodHandles.arrayElementVarHandle(double[].class);
+
+   private final double[] values;
+
+   public ConcurrentChangeListenerDoubleBuffer(int capacity)
+   {
+      super(capacity);
+      values = new double[capacity];
+   }
+
+   public void update(int index, double value)
+   {
+      // Opaque access keeps the value atomic without ordering, markChanged publishes it
+      VALUES.setOpaque(values, index, value);
+      markChanged(index);
+   }
+
+   public double getValue(int index)
+   {
+      return (double) VALUES.getOpaque(values, index);
+   }
+
+   public static class Builder implements us.ihmc.concurrent.Builder<ConcurrentChangeListenerDoubleBuffer>
+   {
+      private final int capacity;
+
+      public Builder(int capacity)
+      {
+         this.capacity = capacity;
+      }
+
+      public ConcurrentChangeListenerDoubleBuffer newInstance()
+      {
+         return new ConcurrentChangeListenerDoubleBuffer(capacity);
+      }
+   }
+}
@@ -0,0 +1,48 @@
+package us.ihmc.concurrent.dataStructures;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Thread-safe variant of {@link ChangeListenerLongBuffer} for int values, see
+ * {@link ConcurrentChangeListenerBuffer}
+ */
+public class ConcurrentChangeListenerIntBuffer extends ConcurrentChangeListenerBuffer
+{
+   private static final VarHandle VALUES = MethodHandles.arrayElementVarHandle(int[].class);
+
+   private final int[] values;
+
+   public ConcurrentChangeListenerIntBuffer(int capacity)
+   {
+      super(capacity);
+      values = new int[capacity];
+   }
+
+   public void update(int index, int value)
+   {
+      // Opaque access keeps the value atomic without ordering, markChanged publishes it
+      VALUES.setOpaque(values, index, value);
+      markChanged(index);
+   }
+
+   public int getValue(int index)
+   {
+      return (int) VALUES.getOpaque(values, index);
+   }
+
+   public static class Builder implements us.ihmc.concurrent.Builder<ConcurrentChangeListenerIntBuffer>
+   {
+      private final int capacity;
+
+      public Builder(int capacity)
+      {
+         this.capacity = capacity;
+      }
+
+      public ConcurrentChangeListenerIntBuffer newInstance()
+      {
+         return new ConcurrentChangeListenerIntBuffer(capacity);
+      }
+   }
+}
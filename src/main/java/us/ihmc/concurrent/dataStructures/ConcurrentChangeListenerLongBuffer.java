@@ -0,0 +1,47 @@
+package us.ihmc.concurrent.dataStructures;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Thread-safe variant of {@link ChangeListenerLongBuffer}, see {@link ConcurrentChangeListenerBuffer}
+ */
+public class ConcurrentChangeListenerLongBuffer extends ConcurrentChangeListenerBuffer
+{
+   private static final VarHandle VALUES = MethodHandles.arrayElementVarHandle(long[].class);
+
+   private final long[] values;
+
+   public ConcurrentChangeListenerLongBuffer(int capacity)
+   {
+      super(capacity);
+      values = new long[capacity];
+   }
+
+   public void update(int index, long value)
+   {
+      // Opaque access keeps the value atomic without ordering, markChanged publishes it
+      VALUES.setOpaque(values, index, value);
+      markChanged(index);
+   }
+
+   public long getValue(int index)
+   {
+      return (long) VALUES.getOpaque(values, index);
+   }
+
+   public static class Builder implements us.ihmc.concurrent.Builder<ConcurrentChangeListenerLongBuffer>
+   {
+      private final int capacity;
+
+      public Builder(int capacity)
+      {
+         this.capacity = capacity;
+      }
+
+      public ConcurrentChangeListenerLongBuffer newInstance()
+      {
+         return new ConcurrentChangeListenerLongBuffer(capacity);
+      }
+   }
+}
@@ -0,0 +1,226 @@
+package us.ihmc.concurrent.dataStructures;
+
+import java.util.HashMap;
+
+/**
+ * Registry of named primitive variables for live tuning of a realtime thread. Lock-free and
+ * garbage-free after registration.
+ * <p>
+ * Variables are registered during setup and addressed by the index returned on registration. Any
+ * thread can post a new value with the set methods; posted values are kept in a
+ * {@link ConcurrentChangeListenerLongBuffer} and do not change the variables yet. The realtime thread
+ * applies all pending values in one call to {@link #applyPendingChanges()} at a point it chooses, for
+ * example at the start of a tick or in updateLocalContext of a barrier scheduler task. Between those
+ * calls the realtime thread sees a stable set of values. When a variable is posted several times
+ * before the realtime thread applies the changes, only the last value is applied.
+ * <p>
+ * Values are stored as raw long bits: doubles with {@link Double#doubleToRawLongBits(double)}, booleans
+ * as 0 or 1 and enums by ordinal.
+ */
+public class ConcurrentVariableRegistry
+{
+   public enum VariableType
+   {
+      DOUBLE, LONG, BOOLEAN, ENUM
+   }
+
+   private final String[] names;
+   private final VariableType[] types;
+   private final Class<?>[] enumTypes;
+   private final Enum<?>[][] enumConstants;
+   private final HashMap<String, Integer> indices = new HashMap<>();
+   private int numberOfVariables = 0;
+
+   private final ConcurrentChangeListenerLongBuffer pendingValues;
+
+   /*
+    * Realtime variables
+    */
+   private final long[] values;
+   private final boolean[] changed;
+
+   /**
+    * @param capacity Maximum number of variables
+    */
+   public ConcurrentVariableRegistry(int capacity)
+   {
+      names = new String[capacity];
+      types = new VariableType[capacity];
+      enumTypes = new Class<?>[capacity];
+      enumConstants = new Enum<?>[capacity][];
+      values = new long[capacity];
+      changed = new boolean[capacity];
+      pendingValues = new ConcurrentChangeListenerLongBuffer(capacity);
+   }
+
+   private synchronized int register(String name, VariableType type, long initialValue)
+   {
+      if (indices.containsKey(name))
+      {
+         throw new IllegalArgumentException("Variable " + name + " is already registered");
+      }
+      if (numberOfVariables >= names.length)
+      {
+         throw new IllegalStateException("Cannot register more than " + names.length + " variables");
+      }
+
+      int index = numberOfVariables++;
+      names[index] = name;
+      types[index] = type;
+      values[index] = initialValue;
+      indices.put(name, index);
+      return index;
+   }
+
+   /**
+    * Register variables during setup, before the realtime thread and the writers are started
+    *
+    * @return Index of the variable
+    */
+   public int registerDouble(String name, double initialValue)
+   {
+      return register(name, VariableType.DOUBLE, Double.doubleToRawLongBits(initialValue));
+   }
+
+   public int registerLong(String name, long initialValue)
+   {
+      return register(name, VariableType.LONG, initialValue);
+   }
+
+   public int registerBoolean(String name, boolean initialValue)
+   {
+      return register(name, VariableType.BOOLEAN, initialValue ? 1 : 0);
+   }
+
+   public synchronized <E extends Enum<E>> int registerEnum(String name, Class<E> enumType, E initialValue)
+   {
+      int index = register(name, VariableType.ENUM, initialValue.ordinal());
+      enumTypes[index] = enumType;
+      enumConstants[index] = enumType.getEnumConstants();
+      return index;
+   }
+
+   /**
+    * @return Index of the variable with the given name, -1 if no such variable is registered
+    */
+   public int findIndex(String name)
+   {
+      Integer index = indices.get(name);
+      return index == null ? -1 : index;
+   }
+
+   public String getName(int index)
+   {
+      return names[index];
+   }
+
+   public VariableType getType(int index)
+   {
+      return types[index];
+   }
+
+   public int getNumberOfVariables()
+   {
+      return numberOfVariables;
+   }
+
+   private void checkType(int index, VariableType type)
+   {
+      if (types[index] != type)
+      {
+         throw new IllegalArgumentException(names[index] + " is a " + types[index] + " variable, not " + type);
+      }
+   }
+
+   /**
+    * Post a new value. Can be called from any thread, the value is applied by the next call to
+    * {@link #applyPendingChanges()}.
+    */
+   public void setDouble(int index, double value)
+   {
+      checkType(index, VariableType.DOUBLE);
+      pendingValues.update(index, Double.doubleToRawLongBits(value));
+   }
+
+   public void setLong(int index, long value)
+   {
+      checkType(index, VariableType.LONG);
+      pendingValues.update(index, value);
+   }
+
+   public void setBoolean(int index, boolean value)
+   {
+      checkType(index, VariableType.BOOLEAN);
+      pendingValues.update(index, value ? 1 : 0);
+   }
+
+   public void setEnum(int index, Enum<?> value)
+   {
+      checkType(index, VariableType.ENUM);
+      if (value.getDeclaringClass() != enumTypes[index])
+      {
+         throw new IllegalArgumentException(value + " is not a value of " + names[index]);
+      }
+      pendingValues.update(index, value.ordinal());
+   }
+
+   /**
+    * Apply all pending values. Call from the realtime thread.
+    *
+    * @return Number of variables that were updated
+    */
+   public int applyPendingChanges()
+   {
+      int count = pendingValues.takeChanged();
+      for (int i = pendingValues.nextChanged(0); i >= 0; i = pendingValues.nextChanged(i + 1))
+      {
+         values[i] = pendingValues.getValue(i);
+         changed[i] = true;
+      }
+      return count;
+   }
+
+   /**
+    * Checks if the variable was updated by {@link #applyPendingChanges()} and resets the latch. Call
+    * from the realtime thread.
+    *
+    * @param index Index
+    * @return true if changed
+    */
+   public boolean hasChangedAndReset(int index)
+   {
+      if (changed[index])
+      {
+         changed[index] = false;
+         return true;
+      }
+      else
+      {
+         return false;
+      }
+   }
+
+   /**
+    * Get the applied value. Call from the realtime thread.
+    */
+   public double getDouble(int index)
+   {
+      return Double.longBitsToDouble(values[index]);
+   }
+
+   public long getLong(int index)
+   {
+      return values[index];
+   }
+
+   public boolean getBoolean(int index)
+   {
+      return values[index] != 0;
+   }
+
+   @SuppressWarnings("unchecked")
+   public <E extends Enum<E>> E getEnum(int index)
+   {
+      return (E) enumConstants[index][(int) values[index]];
+   }
+}
@@ -0,0 +1,261 @@
+package us.ihmc.concurrent.dataStructures;
+
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import us.ihmc.util.PaddedVolatileLong;
+import us.ihmc.util.RealtimeTools;
+
+/**
+ * Preallocated, garbage-free recording of a signal at several resolutions, for long recordings that
+ * do not fit in memory at full rate.
+ * <p>
+ * Tier 0 holds the most recent samples at full rate. Every further tier holds the minimum, maximum
+ * and mean of consecutive blocks of samples, for example of 10 and 100 samples. All tiers are cyclic
+ * buffers with the same capacity, so coarser tiers reach further back in time. Entry p of a tier with
+ * decimation factor f covers samples [p * f, (p + 1) * f).
+ * <p>
+ * One thread adds samples; every tier is updated incrementally, so adding a sample takes constant
+ * time. Any number of threads can read the tiers. Every slot carries a stamp that is odd while it is
+ * written; readers validate the stamp after copying and retry if the writer overwrote the entries.
+ */
+public class DecimatingTimeSeriesBuffer
+{
+   private final Tier[] tiers;
+   private final PaddedVolatileLong sampleCount = new PaddedVolatileLong();
+
+   /**
+    * @param capacity Capacity of every tier, automatically rounded up to the next power of two. One
+    *           entry is reserved for the writer, readers can access capacity - 1 entries per tier.
+    * @param decimationFactors Number of samples per entry of the aggregate tiers, in increasing order
+    */
+   public DecimatingTimeSeriesBuffer(int capacity, int... decimationFactors)
+   {
+      if (capacity < 2)
+      {
+         throw new IllegalArgumentException("Capacity < 2");
+      }
+
+      tiers = new Tier[decimationFactors.length + 1];
+      tiers[0] = new Tier(1, RealtimeTools.nextPowerOfTwo(capacity));
+      for (int i = 0; i < decimationFactors.length; i++)
+      {
+         if (decimationFactors[i] <= tiers[i].factor)
+         {
+            throw new IllegalArgumentException("Decimation factors must be larger than 1 and increasing");
+         }
+         tiers[i + 1] = new Tier(decimationFactors[i], tiers[0].capacity);
+      }
+   }
+
+   /**
+    * Add a sample. Call from the writing thread only.
+    */
+   public void add(double value)
+   {
+      for (int i = 0; i < tiers.length; i++)
+      {
+         tiers[i].add(value);
+      }
+      sampleCount.setRelease(sampleCount.getOpaque() + 1);
+   }
+
+   /**
+    * Copy entries of a tier, starting at firstPosition, into the destination arrays. Copies as many
+    * entries as are available and fit in min. Can be called from any thread.
+    *
+    * @param tier Tier, 0 is the full rate tier
+    * @param firstPosition Position of the first entry to copy
+    * @param min Destination for the minimum of every entry
+    * @param max Destination for the maximum of every entry, at least as long as min
+    * @param mean Destination for the mean of every entry, at least as long as min
+    * @return Number of entries copied, -1 if firstPosition has already been overwritten
+    */
+   public int read(int tier, long firstPosition, double[] min, double[] max, double[] mean)
+   {
+      return tiers[tier].read(firstPosition, min, max, mean);
+   }
+
+   /**
+    * @return Position of the newest entry of the tier, -1 if it has no entries. Can be called from any thread.
+    */
+   public long getNewestPosition(int tier)
+   {
+      return tiers[tier].commitPosition.getAcquire();
+   }
+
+   /**
+    * @return Position of the oldest entry of the tier that can be read, -1 if it has no entries. Can be
+    *         called from any thread.
+    */
+   public long getOldestPosition(int tier)
+   {
+      long newest = getNewestPosition(tier);
+      return newest < 0 ? -1 : tiers[tier].getOldestPosition(newest);
+   }
+
+   /**
+    * @return Number of samples added. Can be called from any thread.
+    */
+   public long getSampleCount()
+   {
+      return sampleCount.getAcquire();
+   }
+
+   public int getNumberOfTiers()
+   {
+      return tiers.length;
+   }
+
+   /**
+    * @return Number of samples per entry of the tier
+    */
+   public int getDecimationFactor(int tier)
+   {
+      return tiers[tier].factor;
+   }
+
+   /**
+    * @return Capacity of every tier
+    */
+   public int getCapacity()
+   {
+      return tiers[0].capacity;
+   }
+
+   private static final class Tier
+   {
+      private final int factor;
+      private final int capacity;
+      private final int capacityMask;
+
+      private final double[] min;
+      private final double[] max;
+      private final double[] mean;
+      private final AtomicLongArray stamps;
+      private final PaddedVolatileLong commitPosition = new PaddedVolatileLong(-1);
+
+      /*
+       * Writer variables
+       */
+      private long writePosition = -1;
+      private int count = 0;
+      private double blockMin;
+      private double blockMax;
+      private double blockSum;
+
+      private Tier(int factor, int capacity)
+      {
+         this.factor = factor;
+         this.capacity = capacity;
+         this.capacityMask = capacity - 1;
+
+         min = new double[capacity];
+         if (factor == 1)
+         {
+            // Minimum, maximum and mean of a single sample are equal, store it once
+            max = min;
+            mean = min;
+         }
+         else
+         {
+            max = new double[capacity];
+            mean = new double[capacity];
+         }
+         stamps = new AtomicLongArray(capacity);
+      }
+
+      private int getIndex(long position)
+      {
+         return (int) (position & capacityMask);
+      }
+
+      private static long getCommittedStamp(long position)
+      {
+         return 2 * position + 2;
+      }
+
+      private long getOldestPosition(long newest)
+      {
+         // The writer can be overwriting the slot after the newest entry
+         return Math.max(0, newest - capacity + 2);
+      }
+
+      private void add(double value)
+      {
+         if (count == 0)
+         {
+            blockMin = value;
+            blockMax = value;
+            blockSum = value;
+         }
+         else
+         {
+            blockMin = Math.min(blockMin, value);
+            blockMax = Math.max(blockMax, value);
+            blockSum += value;
+         }
+
+         if (++count == factor)
+         {
+            publish();
+            count = 0;
+         }
+      }
+
+      private void publish()
+      {
+         ++writePosition;
+         int index = getIndex(writePosition);
+
+         // Mark the slot as being written before changing its contents
+         stamps.setOpaque(index, getCommittedStamp(writePosition) - 1);
+         VarHandle.releaseFence();
+
+         min[index] = blockMin;
+         max[index] = blockMax;
+         mean[index] = blockSum / factor;
+
+         stamps.setRelease(index, getCommittedStamp(writePosition));
+         commitPosition.setRelease(writePosition);
+      }
+
+      private int read(long firstPosition, double[] minDestination, double[] maxDestination, double[] meanDestination)
+      {
+         if (firstPosition < 0)
+         {
+            throw new IllegalArgumentException("Position " + firstPosition + " < 0");
+         }
+
+         while (true)
+         {
+            long newest = commitPosition.getAcquire();
+            if (newest >= 0 && firstPosition < getOldestPosition(newest))
+            {
+               return -1;
+            }
+
+            int entries = (int) Math.min(minDestination.length, newest - firstPosition + 1);
+            if (entries <= 0)
+            {
+               return 0;
+            }
+
+            for (int i = 0; i < entries; i++)
+            {
+               int index = getIndex(firstPosition + i);
+               minDestination[i] = min[index];
+               maxDestination[i] = max[index];
+               meanDestination[i] = mean[index];
+            }
+
+            // Slots are overwritten oldest first, if the first entry is intact all later entries are as well
+            VarHandle.acquireFence();
+            if (stamps.getOpaque(getIndex(firstPosition)) == getCommittedStamp(firstPosition))
+            {
+               return entries;
+            }
+         }
+      }
+   }
+}
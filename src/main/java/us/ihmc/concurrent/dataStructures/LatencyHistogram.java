@@ -0,0 +1,302 @@
+package us.ihmc.concurrent.dataStructures;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+import us.ihmc.util.PaddedVolatileLong;
+
+/**
+ * Preallocated, garbage-free histogram of latencies in nanoseconds with log-linear buckets. Values
+ * below {@link #SUB_BUCKET_COUNT} have a bucket each; every higher power of two range is split into
+ * {@link #SUB_BUCKET_COUNT} equal buckets, so a bucket is never wider than 1/16 of its lower bound.
+ * Zero and negative values are counted in bucket 0.
+ * <p>
+ * One thread records values. Any thread can take a consistent snapshot with
+ * {@link #getSnapshot(LatencyHistogram)} without blocking the recording thread: recording increments a
+ * version before and after updating the histogram and the snapshot is retried when the version
+ * changed while copying. The number of retries is bounded, so a snapshot never spins on a histogram
+ * that is recorded into continuously. Intervals are measured by subtracting a previous snapshot, see
+ * {@link #getIntervalSnapshot(LatencyHistogram, LatencyHistogram)}, so the recording thread never has
+ * to be reset from another thread.
+ */
+public class LatencyHistogram
+{
+   public static final int SUB_BUCKET_BITS = 4;
+   public static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+   public static final int NUMBER_OF_BUCKETS = (Long.SIZE - 1 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+
+   private static final VarHandle COUNTS = MethodHandles.arrayElementVarHandle(long[].class);
+
+   private static final int COUNT = 0;
+   private static final int SUM = 1;
+   private static final int MAX = 2;
+
+   /**
+    * Number of copies a snapshot attempts before it falls back to a copy that is not consistent
+    */
+   public static final int MAX_SNAPSHOT_ATTEMPTS = 8;
+
+   private final long[] counts = new long[NUMBER_OF_BUCKETS];
+   private final long[] totals = new long[3];
+   private final PaddedVolatileLong version = new PaddedVolatileLong();
+
+   /**
+    * Record a latency. Call from the recording thread only.
+    *
+    * @param nanos Latency in nanoseconds
+    */
+   public void record(long nanos)
+   {
+      int bucket = getBucket(nanos);
+
+      beginWrite();
+      COUNTS.setOpaque(counts, bucket, (long) COUNTS.getOpaque(counts, bucket) + 1);
+      COUNTS.setOpaque(totals, COUNT, (long) COUNTS.getOpaque(totals, COUNT) + 1);
+      COUNTS.setOpaque(totals, SUM, (long) COUNTS.getOpaque(totals, SUM) + nanos);
+      if (nanos > (long) COUNTS.getOpaque(totals, MAX))
+      {
+         COUNTS.setOpaque(totals, MAX, nanos);
+      }
+      endWrite();
+   }
+
+   private void beginWrite()
+   {
+      version.setOpaque(version.getOpaque() + 1);
+      VarHandle.releaseFence();
+   }
+
+   private void endWrite()
+   {
+      version.setRelease(version.getOpaque() + 1);
+   }
+
+   /**
+    * Copy the current state into destination. Can be called from any thread.
+    * <p>
+    * If the recording thread changed the histogram during each of {@link #MAX_SNAPSHOT_ATTEMPTS}
+    * copies, the last copy is kept. Every bucket and total of that copy is a value the histogram had,
+    * but they can be from different points in time, e.g. the count can differ from the sum of the
+    * buckets by the number of values recorded while copying.
+    *
+    * @param destination Histogram to copy into, not used by another thread
+    * @return true if the snapshot is consistent, false if it was copied while values were recorded
+    */
+   public boolean getSnapshot(LatencyHistogram destination)
+   {
+      for (int attempt = 0; attempt < MAX_SNAPSHOT_ATTEMPTS; attempt++)
+      {
+         long startVersion = version.getAcquire();
+         if ((startVersion & 1) == 1)
+         {
+            Thread.onSpinWait();
+            continue;
+         }
+
+         copy(destination);
+
+         VarHandle.acquireFence();
+         if (version.getOpaque() == startVersion)
+         {
+            return true;
+         }
+      }
+
+      copy(destination);
+      return false;
+   }
+
+   private void copy(LatencyHistogram destination)
+   {
+      for (int i = 0; i < NUMBER_OF_BUCKETS; i++)
+      {
+         destination.counts[i] = (long) COUNTS.getOpaque(counts, i);
+      }
+      for (int i = 0; i < totals.length; i++)
+      {
+         destination.totals[i] = (long) COUNTS.getOpaque(totals, i);
+      }
+   }
+
+   /**
+    * Get the values recorded since baseline was taken, and update baseline to the current state. Can
+    * be called from any thread.
+    * <p>
+    * The maximum of the interval is exact when it exceeds the maximum of the baseline, otherwise it is
+    * estimated from the highest bucket of the interval.
+    *
+    * @param baseline Snapshot taken by the previous call, or an empty histogram for the first interval
+    * @param interval Histogram to store the values of the interval in
+    * @return true if the snapshot is consistent, see {@link #getSnapshot(LatencyHistogram)}
+    */
+   public boolean getIntervalSnapshot(LatencyHistogram baseline, LatencyHistogram interval)
+   {
+      boolean consistent = getSnapshot(interval);
+
+      int highestBucket = -1;
+      for (int i = 0; i < NUMBER_OF_BUCKETS; i++)
+      {
+         long current = interval.counts[i];
+         interval.counts[i] = current - baseline.counts[i];
+         baseline.counts[i] = current;
+         if (interval.counts[i] > 0)
+         {
+            highestBucket = i;
+         }
+      }
+
+      long max = interval.totals[MAX];
+      long baselineMax = baseline.totals[MAX];
+      for (int i = 0; i < totals.length; i++)
+      {
+         long current = interval.totals[i];
+         interval.totals[i] = current - baseline.totals[i];
+         baseline.totals[i] = current;
+      }
+
+      if (highestBucket < 0)
+      {
+         interval.totals[MAX] = 0;
+      }
+      else if (max > baselineMax)
+      {
+         interval.totals[MAX] = max;
+      }
+      else
+      {
+         interval.totals[MAX] = Math.min(max, getBucketUpperBound(highestBucket) - 1);
+      }
+      return consistent;
+   }
+
+   /**
+    * Clear all values. Call from the recording thread only.
+    */
+   public void reset()
+   {
+      beginWrite();
+      for (int i = 0; i < NUMBER_OF_BUCKETS; i++)
+      {
+         COUNTS.setOpaque(counts, i, 0L);
+      }
+      for (int i = 0; i < totals.length; i++)
+      {
+         COUNTS.setOpaque(totals, i, 0L);
+      }
+      endWrite();
+   }
+
+   public static int getBucket(long nanos)
+   {
+      if (nanos < SUB_BUCKET_COUNT)
+      {
+         return nanos <= 0 ? 0 : (int) nanos;
+      }
+
+      // The highest bit selects the power of two range, the next SUB_BUCKET_BITS bits the bucket in that range
+      int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(nanos);
+      int shift = exponent - SUB_BUCKET_BITS;
+      return (shift + 1) * SUB_BUCKET_COUNT + (int) (nanos >>> shift) - SUB_BUCKET_COUNT;
+   }
+
+   /**
+    * @return Inclusive lower bound of the values in bucket
+    */
+   public static long getBucketLowerBound(int bucket)
+   {
+      if (bucket < SUB_BUCKET_COUNT)
+      {
+         return bucket;
+      }
+
+      int shift = bucket / SUB_BUCKET_COUNT - 1;
+      return (long) (SUB_BUCKET_COUNT + bucket % SUB_BUCKET_COUNT) << shift;
+   }
+
+   /**
+    * @return Exclusive upper bound of the values in bucket
+    */
+   public static long getBucketUpperBound(int bucket)
+   {
+      if (bucket >= NUMBER_OF_BUCKETS - 1)
+      {
+         return Long.MAX_VALUE;
+      }
+      return getBucketLowerBound(bucket + 1);
+   }
+
+   public long getBucketCount(int bucket)
+   {
+      return (long) COUNTS.getOpaque(counts, bucket);
+   }
+
+   public long getCount()
+   {
+      return (long) COUNTS.getOpaque(totals, COUNT);
+   }
+
+   public long getMax()
+   {
+      return (long) COUNTS.getOpaque(totals, MAX);
+   }
+
+   /**
+    * @return Mean latency in nanoseconds, 0 if nothing has been recorded
+    */
+   public double getMean()
+   {
+      long count = getCount();
+      return count == 0 ? 0.0 : (double) (long) COUNTS.getOpaque(totals, SUM) / count;
+   }
+
+   /**
+    * Get the value at the given percentile, to the resolution of the buckets. Call on a snapshot.
+    *
+    * @param percentile Percentile in [0, 100], for example 99.9
+    * @return Highest value of the bucket that holds the percentile, limited to the maximum. 0 if
+    *         nothing has been recorded.
+    */
+   public long getPercentile(double percentile)
+   {
+      if (percentile < 0.0 || percentile > 100.0)
+      {
+         throw new IllegalArgumentException("Percentile " + percentile + " is not in [0, 100]");
+      }
+
+      long count = getCount();
+      if (count == 0)
+      {
+         return 0;
+      }
+
+      long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+      long seen = 0;
+      for (int i = 0; i < NUMBER_OF_BUCKETS; i++)
+      {
+         seen += getBucketCount(i);
+         if (seen >= rank)
+         {
+            return Math.min(getMax(), getBucketUpperBound(i) - 1);
+         }
+      }
+      return getMax();
+   }
+
+   @Override
+   public String toString()
+   {
+      StringBuilder builder = new StringBuilder();
+      builder.append("count: ").append(getCount()).append(", mean: ").append(getMean()).append("ns, max: ").append(getMax()).append("ns");
+      builder.append(", p50: ").append(getPercentile(50.0)).append("ns, p99: ").append(getPercentile(99.0));
+      builder.append("ns, p99.9: ").append(getPercentile(99.9)).append("ns, p99.99: ").append(getPercentile(99.99)).append("ns");
+      for (int i = 0; i < NUMBER_OF_BUCKETS; i++)
+      {
+         long count = getBucketCount(i);
+         if (count > 0)
+         {
+            builder.append("\n < ").append(getBucketUpperBound(i)).append("ns: ").append(count);
+         }
+      }
+      return builder.toString();
+   }
+}
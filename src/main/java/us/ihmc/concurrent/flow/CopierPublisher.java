@@ -0,0 +1,44 @@
+package us.ihmc.concurrent.flow;
+
+import us.ihmc.concurrent.ConcurrentCopier;
+
+/**
+ * Publishes the latest object of a {@link ConcurrentCopier} once per commit. Commits that happen
+ * between two passes of the drain loop are conflated. The publisher is the reader of the copier, no
+ * other thread may read it. The writer side is unchanged.
+ *
+ * @param <T> Class in copier
+ */
+public class CopierPublisher<T> extends DrainPublisher<T>
+{
+   private final ConcurrentCopier<T> copier;
+   private long lastCommitCount = 0;
+
+   public CopierPublisher(ConcurrentCopier<T> copier, DrainLoop drainLoop)
+   {
+      super(drainLoop);
+      this.copier = copier;
+   }
+
+   @Override
+   protected int poll()
+   {
+      long commitCount = copier.getCommitCount();
+      if (commitCount == lastCommitCount)
+      {
+         return 0;
+      }
+      lastCommitCount = commitCount;
+
+      // The commit counted here can already have been read in the previous pass, skip stale reads
+      long staleReadCount = copier.getStaleReadCount();
+      T copy = copier.getCopyForReading();
+      if (copy == null || copier.getStaleReadCount() != staleReadCount)
+      {
+         return 0;
+      }
+
+      deliver(copy);
+      return 1;
+   }
+}
@@ -0,0 +1,113 @@
+package us.ihmc.concurrent.flow;
+
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Single non-realtime thread that drains any number of {@link DrainPublisher}s and delivers the data
+ * to their subscribers. Replaces a polling thread per buffer.
+ * <p>
+ * Every pass drains all publishers once. When a pass finds no data the thread parks for the idle
+ * time, which bounds the delivery latency for data that arrives while it is idle.
+ * <p>
+ * Exceptions thrown by publishers and subscribers are passed to the exception handler, which prints
+ * the stack trace by default. Errors are not caught and stop the drain thread.
+ */
+public class DrainLoop
+{
+   private final CopyOnWriteArrayList<DrainPublisher<?>> publishers = new CopyOnWriteArrayList<>();
+   private final Thread thread;
+   private final long idleNanos;
+
+   private volatile boolean running = true;
+   private volatile Consumer<RuntimeException> exceptionHandler = RuntimeException::printStackTrace;
+
+   /**
+    * @param name Name of the drain thread
+    * @param idleNanos Time to park when a pass found no data
+    */
+   public DrainLoop(String name, long idleNanos)
+   {
+      if (idleNanos <= 0)
+      {
+         throw new IllegalArgumentException("idleNanos <= 0");
+      }
+
+      this.idleNanos = idleNanos;
+      thread = new Thread(this::run, name);
+      thread.setDaemon(true);
+   }
+
+   public void start()
+   {
+      thread.start();
+   }
+
+   /**
+    * Stop the drain thread. Subscribers of all publishers receive onComplete before the thread exits.
+    */
+   public void shutdown() throws InterruptedException
+   {
+      running = false;
+      LockSupport.unpark(thread);
+      thread.join();
+   }
+
+   /**
+    * @param exceptionHandler Called with every exception thrown by a publisher or subscriber
+    */
+   public void setExceptionHandler(Consumer<RuntimeException> exceptionHandler)
+   {
+      this.exceptionHandler = Objects.requireNonNull(exceptionHandler);
+   }
+
+   void reportException(RuntimeException e)
+   {
+      exceptionHandler.accept(e);
+   }
+
+   void add(DrainPublisher<?> publisher)
+   {
+      publishers.addIfAbsent(publisher);
+      LockSupport.unpark(thread);
+   }
+
+   private void run()
+   {
+      while (running)
+      {
+         int count = 0;
+         for (DrainPublisher<?> publisher : publishers)
+         {
+            // A failing publisher is stopped, the others on this thread keep running
+            try
+            {
+               count += publisher.drain();
+            }
+            catch (RuntimeException e)
+            {
+               reportException(e);
+               publisher.abort(e);
+            }
+
+            if (publisher.isCompleted())
+            {
+               publishers.remove(publisher);
+            }
+         }
+
+         if (count == 0)
+         {
+            LockSupport.parkNanos(idleNanos);
+         }
+      }
+
+      for (DrainPublisher<?> publisher : publishers)
+      {
+         publisher.complete();
+      }
+      publishers.clear();
+   }
+}
@@ -0,0 +1,283 @@
+package us.ihmc.concurrent.flow;
+
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Base class for publishers that are drained by a {@link DrainLoop}. All subscriber signals are sent
+ * from the drain thread.
+ * <p>
+ * Every item is offered to all subscribers. A subscriber without outstanding demand does not receive
+ * the item and a drop is counted; the realtime producer is never held up by slow subscribers. While
+ * there are no subscribers the buffer is not drained, new data stays in the buffer until the next
+ * subscription.
+ * <p>
+ * A subscriber that throws violates the specification. It is cancelled and the exception is passed to
+ * the exception handler of the {@link DrainLoop}, the other subscribers are still served.
+ * <p>
+ * Items are the objects of the underlying buffer and are reused. An item is only valid for the
+ * duration of the onNext call, subscribers that keep data must copy it.
+ *
+ * @param <T> Class of the items
+ */
+public abstract class DrainPublisher<T> implements Flow.Publisher<T>
+{
+   private final DrainLoop drainLoop;
+   private final CopyOnWriteArrayList<DrainSubscription> subscriptions = new CopyOnWriteArrayList<>();
+   private final AtomicLong dropCount = new AtomicLong();
+
+   private volatile boolean closed = false;
+   private volatile boolean completed = false;
+   private boolean registered = false;
+
+   protected DrainPublisher(DrainLoop drainLoop)
+   {
+      this.drainLoop = drainLoop;
+   }
+
+   @Override
+   public void subscribe(Flow.Subscriber<? super T> subscriber)
+   {
+      Objects.requireNonNull(subscriber);
+
+      DrainSubscription subscription = new DrainSubscription(subscriber);
+      subscriber.onSubscribe(subscription);
+      if (closed)
+      {
+         subscription.complete();
+         return;
+      }
+      subscriptions.add(subscription);
+
+      // The drain thread can have completed the publisher between the check above and adding the subscription.
+      // Terminal signals are sent at most once, completing the subscription twice is harmless.
+      if (completed)
+      {
+         subscriptions.remove(subscription);
+         subscription.complete();
+         return;
+      }
+
+      // Registered on the first subscription so the drain thread never sees a partially constructed publisher
+      synchronized (this)
+      {
+         if (!registered)
+         {
+            registered = true;
+            drainLoop.add(this);
+         }
+      }
+   }
+
+   /**
+    * Complete all subscribers and stop draining. Subscribers receive onComplete from the drain thread.
+    */
+   public void close()
+   {
+      closed = true;
+   }
+
+   /**
+    * @return Number of items that were not delivered to a subscriber because it had no outstanding demand
+    */
+   public long getDropCount()
+   {
+      return dropCount.get();
+   }
+
+   public int getNumberOfSubscribers()
+   {
+      return subscriptions.size();
+   }
+
+   /**
+    * Take new data from the buffer and pass every item to {@link #deliver(Object)}. Called from the
+    * drain thread.
+    *
+    * @return Number of items taken from the buffer
+    */
+   protected abstract int poll();
+
+   /**
+    * Offer an item to all subscribers. Called from {@link #poll()}.
+    */
+   protected final void deliver(T item)
+   {
+      for (DrainSubscription subscription : subscriptions)
+      {
+         subscription.deliver(item);
+      }
+   }
+
+   int drain()
+   {
+      if (completed)
+      {
+         return 0;
+      }
+      if (closed)
+      {
+         complete();
+         return 0;
+      }
+
+      for (DrainSubscription subscription : subscriptions)
+      {
+         subscription.checkRequest();
+      }
+      if (subscriptions.isEmpty())
+      {
+         return 0;
+      }
+      return poll();
+   }
+
+   void complete()
+   {
+      completed = true;
+      for (DrainSubscription subscription : subscriptions)
+      {
+         subscription.complete();
+      }
+      subscriptions.clear();
+   }
+
+   /**
+    * Stop draining after poll() threw, the subscribers receive the exception with onError
+    */
+   void abort(Throwable cause)
+   {
+      completed = true;
+      for (DrainSubscription subscription : subscriptions)
+      {
+         subscription.error(cause);
+      }
+      subscriptions.clear();
+   }
+
+   boolean isCompleted()
+   {
+      return completed;
+   }
+
+   private class DrainSubscription implements Flow.Subscription
+   {
+      private final Flow.Subscriber<? super T> subscriber;
+      private final AtomicLong demand = new AtomicLong();
+
+      private final AtomicBoolean terminated = new AtomicBoolean();
+      private volatile boolean cancelled = false;
+      private volatile long invalidRequest = 0;
+
+      private DrainSubscription(Flow.Subscriber<? super T> subscriber)
+      {
+         this.subscriber = subscriber;
+      }
+
+      @Override
+      public void request(long n)
+      {
+         if (n <= 0)
+         {
+            // Signalled from the drain thread to keep the signals to the subscriber serialized
+            invalidRequest = n == 0 ? Long.MIN_VALUE : n;
+            return;
+         }
+
+         while (true)
+         {
+            long current = demand.get();
+            long next = current + n < 0 ? Long.MAX_VALUE : current + n;
+            if (demand.compareAndSet(current, next))
+            {
+               return;
+            }
+         }
+      }
+
+      @Override
+      public void cancel()
+      {
+         cancelled = true;
+         subscriptions.remove(this);
+      }
+
+      private void checkRequest()
+      {
+         long n = invalidRequest;
+         if (n != 0 && !cancelled)
+         {
+            subscriptions.remove(this);
+            error(new IllegalArgumentException("Requested " + (n == Long.MIN_VALUE ? 0 : n) + " items, must be positive"));
+         }
+      }
+
+      private void deliver(T item)
+      {
+         if (cancelled)
+         {
+            return;
+         }
+
+         // Only the drain thread decrements the demand
+         long current = demand.get();
+         if (current == 0)
+         {
+            dropCount.incrementAndGet();
+            return;
+         }
+         if (current != Long.MAX_VALUE)
+         {
+            demand.decrementAndGet();
+         }
+
+         try
+         {
+            subscriber.onNext(item);
+         }
+         catch (RuntimeException e)
+         {
+            cancel();
+            drainLoop.reportException(e);
+         }
+      }
+
+      /*
+       * Terminal signals are sent at most once and not after cancel(), from the drain thread or from subscribe()
+       */
+      private void complete()
+      {
+         if (!cancelled && terminated.compareAndSet(false, true))
+         {
+            cancelled = true;
+            try
+            {
+               subscriber.onComplete();
+            }
+            catch (RuntimeException e)
+            {
+               drainLoop.reportException(e);
+            }
+         }
+      }
+
+      private void error(Throwable cause)
+      {
+         if (!cancelled && terminated.compareAndSet(false, true))
+         {
+            cancelled = true;
+            try
+            {
+               subscriber.onError(cause);
+            }
+            catch (RuntimeException e)
+            {
+               drainLoop.reportException(e);
+            }
+         }
+      }
+   }
+}
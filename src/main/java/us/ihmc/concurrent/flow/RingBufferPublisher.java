@@ -0,0 +1,41 @@
+package us.ihmc.concurrent.flow;
+
+import us.ihmc.concurrent.ConcurrentRingBuffer;
+import us.ihmc.concurrent.EntryHandler;
+
+/**
+ * Publishes every entry committed to a {@link ConcurrentRingBuffer}. The publisher is the consumer of
+ * the ring buffer, no other thread may poll it. The producer side is unchanged.
+ *
+ * @param <T> Class in buffer
+ */
+public class RingBufferPublisher<T> extends DrainPublisher<T>
+{
+   private final ConcurrentRingBuffer<T> buffer;
+   private final int maxBatchSize;
+   private final EntryHandler<T> handler = this::deliver;
+
+   /**
+    * @param buffer Ring buffer to drain
+    * @param drainLoop Loop that drains the buffer
+    * @param maxBatchSize Maximum number of entries to take from the buffer in one pass of the drain loop
+    */
+   public RingBufferPublisher(ConcurrentRingBuffer<T> buffer, DrainLoop drainLoop, int maxBatchSize)
+   {
+      super(drainLoop);
+
+      if (maxBatchSize <= 0)
+      {
+         throw new IllegalArgumentException("maxBatchSize <= 0");
+      }
+
+      this.buffer = buffer;
+      this.maxBatchSize = maxBatchSize;
+   }
+
+   @Override
+   protected int poll()
+   {
+      return buffer.drain(handler, maxBatchSize);
+   }
+}
@@ -0,0 +1,64 @@
+package us.ihmc.concurrent.waitStrategies;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Progressive backoff. Spins first, then yields and finally parks, doubling the park time on every
+ * iteration up to a maximum. Short waits stay responsive while long waits use little processor time.
+ */
+public class BackoffWaitStrategy implements WaitStrategy
+{
+   private final int spinTries;
+   private final int yieldTries;
+   private final long minParkNanos;
+   private final long maxParkNanos;
+
+   private long parkNanos;
+
+   public BackoffWaitStrategy()
+   {
+      this(100, 10, 1000, 1000000);
+   }
+
+   /**
+    * @param spinTries Number of iterations to spin
+    * @param yieldTries Number of iterations to yield after spinning
+    * @param minParkNanos Park time of the first parking iteration in nanoseconds
+    * @param maxParkNanos Maximum park time in nanoseconds
+    */
+   public BackoffWaitStrategy(int spinTries, int yieldTries, long minParkNanos, long maxParkNanos)
+   {
+      if (minParkNanos <= 0 || maxParkNanos < minParkNanos)
+      {
+         throw new IllegalArgumentException("Invalid park times, expected 0 < minParkNanos <= maxParkNanos");
+      }
+
+      this.spinTries = spinTries;
+      this.yieldTries = yieldTries;
+      this.minParkNanos = minParkNanos;
+      this.maxParkNanos = maxParkNanos;
+   }
+
+   @Override
+   public void idle(int idleCount, long remainingNanos)
+   {
+      if (idleCount < spinTries)
+      {
+         Thread.onSpinWait();
+      }
+      else if (idleCount < spinTries + yieldTries)
+      {
+         Thread.yield();
+      }
+      else
+      {
+         // Every wait starts parking at the minimum park time
+         if (idleCount == spinTries + yieldTries)
+         {
+            parkNanos = minParkNanos;
+         }
+         LockSupport.parkNanos(this, Math.min(parkNanos, remainingNanos));
+         parkNanos = Math.min(2 * parkNanos, maxParkNanos);
+      }
+   }
+}
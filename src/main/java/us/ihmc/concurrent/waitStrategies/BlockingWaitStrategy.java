@@ -0,0 +1,50 @@
+package us.ihmc.concurrent.waitStrategies;
+
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Parks the waiting thread until the other endpoint signals progress or the wait times out.
+ * <p>
+ * The waiting thread registers itself on the first iteration and only parks on the next iteration,
+ * after the endpoint checked its condition again. A signal that arrives between the check and the
+ * park leaves an unpark permit, so no wake up is lost. Signalling costs a full fence and a volatile
+ * read when no thread is waiting.
+ */
+public class BlockingWaitStrategy implements WaitStrategy
+{
+   private final AtomicReference<Thread> waitingThread = new AtomicReference<>(null);
+
+   @Override
+   public void idle(int idleCount, long remainingNanos)
+   {
+      if (idleCount == 0)
+      {
+         waitingThread.set(Thread.currentThread());
+      }
+      else
+      {
+         LockSupport.parkNanos(this, remainingNanos);
+      }
+   }
+
+   @Override
+   public void waitCompleted()
+   {
+      waitingThread.set(null);
+   }
+
+   @Override
+   public void signal()
+   {
+      // The endpoints publish their positions with release stores. The fence orders that store before
+      // reading the waiting thread, otherwise both sides could miss each other.
+      VarHandle.fullFence();
+      Thread waitingThreadRef = waitingThread.get();
+      if (waitingThreadRef != null)
+      {
+         LockSupport.unpark(waitingThreadRef);
+      }
+   }
+}
@@ -0,0 +1,14 @@
+package us.ihmc.concurrent.waitStrategies;
+
+/**
+ * Spins without giving up the processor. Lowest latency, but burns a full core while waiting. Use
+ * for realtime threads on isolated cores.
+ */
+public class BusySpinWaitStrategy implements WaitStrategy
+{
+   @Override
+   public void idle(int idleCount, long remainingNanos)
+   {
+      Thread.onSpinWait();
+   }
+}
@@ -0,0 +1,36 @@
+package us.ihmc.concurrent.waitStrategies;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Parks the thread for a fixed time on every iteration. Uses little processor time, at the cost of
+ * a latency of up to the park time plus the scheduler latency of the operating system.
+ */
+public class ParkingWaitStrategy implements WaitStrategy
+{
+   private final long parkNanos;
+
+   public ParkingWaitStrategy()
+   {
+      this(100000); // 100 us
+   }
+
+   /**
+    * @param parkNanos Time to park on every iteration in nanoseconds
+    */
+   public ParkingWaitStrategy(long parkNanos)
+   {
+      if (parkNanos <= 0)
+      {
+         throw new IllegalArgumentException("parkNanos must be > 0");
+      }
+
+      this.parkNanos = parkNanos;
+   }
+
+   @Override
+   public void idle(int idleCount, long remainingNanos)
+   {
+      LockSupport.parkNanos(this, Math.min(parkNanos, remainingNanos));
+   }
+}
@@ -0,0 +1,37 @@
+package us.ihmc.concurrent.waitStrategies;
+
+/**
+ * Strategy for an endpoint of a concurrent data structure to wait for the other endpoint, e.g. a
+ * consumer waiting for new data or a producer waiting for free space.
+ * <p>
+ * The waiting endpoint checks its condition and calls {@link #idle(int, long)} while the condition
+ * is not met, followed by {@link #waitCompleted()} once it stops waiting. The other endpoint calls
+ * {@link #signal()} every time it makes progress. A strategy instance keeps state for a single
+ * waiting thread, use one instance per endpoint.
+ */
+public interface WaitStrategy
+{
+   /**
+    * Called repeatedly while the condition the endpoint waits for is not met.
+    *
+    * @param idleCount number of previous calls to idle during the current wait
+    * @param remainingNanos time left before the wait times out, always positive
+    */
+   public void idle(int idleCount, long remainingNanos);
+
+   /**
+    * Called by the waiting endpoint when it stops waiting, either because the condition is met or
+    * because the wait timed out.
+    */
+   public default void waitCompleted()
+   {
+   }
+
+   /**
+    * Called by the other endpoint after it made progress. Called on the hot path, implementations
+    * must not block or allocate.
+    */
+   public default void signal()
+   {
+   }
+}
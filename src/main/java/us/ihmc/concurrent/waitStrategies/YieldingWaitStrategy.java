@@ -0,0 +1,35 @@
+package us.ihmc.concurrent.waitStrategies;
+
+/**
+ * Spins for a number of iterations, then yields the processor to other threads on every iteration.
+ */
+public class YieldingWaitStrategy implements WaitStrategy
+{
+   private final int spinTries;
+
+   public YieldingWaitStrategy()
+   {
+      this(100);
+   }
+
+   /**
+    * @param spinTries Number of iterations to spin before yielding
+    */
+   public YieldingWaitStrategy(int spinTries)
+   {
+      this.spinTries = spinTries;
+   }
+
+   @Override
+   public void idle(int idleCount, long remainingNanos)
+   {
+      if (idleCount < spinTries)
+      {
+         Thread.onSpinWait();
+      }
+      else
+      {
+         Thread.yield();
+      }
+   }
+}
@@ -2,6 +2,7 @@ package us.ihmc.realtime;
 
 import us.ihmc.affinity.CPUTopology;
 import us.ihmc.affinity.Package;
+import us.ihmc.concurrent.dataStructures.LatencyHistogram;
 import us.ihmc.concurrent.runtime.barrierScheduler.implicitContext.BarrierScheduler;
 import us.ihmc.concurrent.runtime.barrierScheduler.implicitContext.tasks.BindingContext;
 import us.ihmc.concurrent.runtime.barrierScheduler.implicitContext.tasks.CopyableContextTask;
@@ -37,6 +38,9 @@ public class TestBarrierSchedulerCyclic
       long periodInNS;
       long iterations = 0;
 
+      final LatencyHistogram jitterHistogram = new LatencyHistogram();
+      final LatencyHistogram jitterSnapshot = new LatencyHistogram();
+
       TimingInformation(String name, long periodInNS)
       {
          this.periodInNS = periodInNS;
@@ -60,6 +64,7 @@ public class TestBarrierSchedulerCyclic
 
          previousTime = newTime;
          avgJitter += jitter;
+         jitterHistogram.record(jitter);
 
          iterations++;
       }
@@ -73,6 +78,12 @@ public class TestBarrierSchedulerCyclic
       {
          return (double) avgJitter / (double) iterations / 1e3;
       }
+
+      public double getFinalJitterPercentileMicroseconds(double percentile)
+      {
+         jitterHistogram.getSnapshot(jitterSnapshot);
+         return (double) jitterSnapshot.getPercentile(percentile) / 1e3;
+      }
    }
 
    public static class TestCyclicData implements InPlaceCopyable<TestCyclicData>
@@ -112,8 +123,10 @@ public class TestBarrierSchedulerCyclic
 
       public void doReporting()
       {
-         System.out.format("Update Task Jitter: avg = %.4f us, max = %.4f us%n", timingInformation.getFinalAvgJitterMicroseconds(),
-                           timingInformation.getFinalMaxJitterMicroseconds());
+         System.out.format("Update Task Jitter: avg = %.4f us, max = %.4f us, p99 = %.4f us, p99.9 = %.4f us, p99.99 = %.4f us%n",
+                           timingInformation.getFinalAvgJitterMicroseconds(), timingInformation.getFinalMaxJitterMicroseconds(),
+                           timingInformation.getFinalJitterPercentileMicroseconds(99.0), timingInformation.getFinalJitterPercentileMicroseconds(99.9),
+                           timingInformation.getFinalJitterPercentileMicroseconds(99.99));
       }
 
       /**
@@ -200,8 +213,10 @@ public class TestBarrierSchedulerCyclic
 
       public void doReporting()
       {
-         System.out.format("Examine Task Jitter: avg = %.4f us, max = %.4f us%n", timingInformation.getFinalAvgJitterMicroseconds(),
-                           timingInformation.getFinalMaxJitterMicroseconds());
+         System.out.format("Examine Task Jitter: avg = %.4f us, max = %.4f us, p99 = %.4f us, p99.9 = %.4f us, p99.99 = %.4f us%n",
+                           timingInformation.getFinalAvgJitterMicroseconds(), timingInformation.getFinalMaxJitterMicroseconds(),
+                           timingInformation.getFinalJitterPercentileMicroseconds(99.0), timingInformation.getFinalJitterPercentileMicroseconds(99.9),
+                           timingInformation.getFinalJitterPercentileMicroseconds(99.99));
       }
 
       /**
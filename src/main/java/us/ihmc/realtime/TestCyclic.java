@@ -19,6 +19,7 @@ package us.ihmc.realtime;
 
 import us.ihmc.affinity.CPUTopology;
 import us.ihmc.affinity.Processor;
+import us.ihmc.concurrent.dataStructures.LatencyHistogram;
 
 public class TestCyclic
 {
@@ -46,6 +47,8 @@ public class TestCyclic
 
       RealtimeThread periodicRealtimeThread = new RealtimeThread(priorityParameters, periodicParameters)
       {
+         private final LatencyHistogram jitterHistogram = new LatencyHistogram();
+
          private void perform(int run)
          {
             long previousTime = 0;
@@ -66,6 +69,7 @@ public class TestCyclic
 
                if(jitter > maxJitter) { maxJitter = jitter; }
                avgJitter += jitter;
+               jitterHistogram.record(jitter);
 
                previousTime = newTime;
             }
@@ -73,7 +77,10 @@ public class TestCyclic
             final double usAvgJitter = (double) avgJitter / (double) iterations / 1e3;
             final double usMaxJitter = (double) maxJitter / 1e3;
 
-            System.out.format("[%d] Jitter: avg = %.4f us, max = %.4f us%n", run, usAvgJitter, usMaxJitter);
+            System.out.format("[%d] Jitter: avg = %.4f us, max = %.4f us, p99 = %.4f us, p99.9 = %.4f us, p99.99 = %.4f us%n", run, usAvgJitter,
+                              usMaxJitter, jitterHistogram.getPercentile(99.0) / 1e3, jitterHistogram.getPercentile(99.9) / 1e3,
+                              jitterHistogram.getPercentile(99.99) / 1e3);
+            jitterHistogram.reset();
          }
 
          @Override
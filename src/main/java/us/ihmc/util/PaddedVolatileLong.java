@@ -0,0 +1,155 @@
+package us.ihmc.util;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Padding before the value. The JVM lays out the fields of a superclass before the fields of its
+ * subclasses, so padding in the class hierarchy cannot be reordered around the value.
+ */
+abstract class PaddedVolatileLongLeftPadding
+{
+   long p00, p01, p02, p03, p04, p05, p06, p07;
+}
+
+abstract class PaddedVolatileLongValue extends PaddedVolatileLongLeftPadding
+{
+   volatile long value;
+}
+
+/**
+ * Volatile long that sits on its own cache line, padded on both sides. Used for the positions and
+ * counters of the concurrent data structures in this library.
+ * <p>
+ * Unlike {@link PaddedAtomicLong}, which extends {@link java.util.concurrent.atomic.AtomicLong} and
+ * only has padding after the value, the padding before the value is part of the class hierarchy and
+ * cannot be reordered by the JVM. Provides the volatile, acquire/release and opaque accessors of
+ * {@link java.util.concurrent.atomic.AtomicLong}. Use the acquire/release accessors when a full fence
+ * is not needed, e.g. publishing a position to a single consumer with {@link #setRelease(long)} and
+ * reading it with {@link #getAcquire()}.
+ *
+ * @see http://mechanical-sympathy.blogspot.com/2011/07/false-sharing.html
+ * @see http://mechanical-sympathy.blogspot.com/2011/08/false-sharing-java-7.html
+ */
+public class PaddedVolatileLong extends PaddedVolatileLongValue
+{
+   private static final VarHandle VALUE;
+   static
+   {
+      try
+      {
+         VALUE = MethodHandles.lookup().findVarHandle(PaddedVolatileLongValue.class, "value", long.class);
+      }
+      catch (ReflectiveOperationException e)
+      {
+         throw new ExceptionInInitializerError(e);
+      }
+   }
+
+   long p10, p11, p12, p13, p14, p15, p16, p17;
+
+   public PaddedVolatileLong()
+   {
+      super();
+   }
+
+   public PaddedVolatileLong(long initialValue)
+   {
+      value = initialValue;
+   }
+
+   /**
+    * @return the value, with volatile memory semantics
+    */
+   public long get()
+   {
+      return value;
+   }
+
+   /**
+    * Sets the value with volatile memory semantics, including a full fence.
+    */
+   public void set(long newValue)
+   {
+      value = newValue;
+   }
+
+   /**
+    * @return the value, with acquire memory semantics
+    */
+   public long getAcquire()
+   {
+      return (long) VALUE.getAcquire(this);
+   }
+
+   /**
+    * Sets the value with release memory semantics. All writes before this call are visible to a
+    * thread that reads the new value with {@link #getAcquire()} or {@link #get()}.
+    */
+   public void setRelease(long newValue)
+   {
+      VALUE.setRelease(this, newValue);
+   }
+
+   /**
+    * Same as {@link #setRelease(long)}, kept for compatibility with
+    * {@link java.util.concurrent.atomic.AtomicLong#lazySet(long)}.
+    */
+   public void lazySet(long newValue)
+   {
+      VALUE.setRelease(this, newValue);
+   }
+
+   /**
+    * @return the value, without ordering guarantees with respect to other variables
+    */
+   public long getOpaque()
+   {
+      return (long) VALUE.getOpaque(this);
+   }
+
+   /**
+    * Sets the value without ordering guarantees with respect to other variables. Use for values
+    * written by a single thread and only observed by other threads, such as counters.
+    */
+   public void setOpaque(long newValue)
+   {
+      VALUE.setOpaque(this, newValue);
+   }
+
+   public boolean compareAndSet(long expectedValue, long newValue)
+   {
+      return VALUE.compareAndSet(this, expectedValue, newValue);
+   }
+
+   public long getAndSet(long newValue)
+   {
+      return (long) VALUE.getAndSet(this, newValue);
+   }
+
+   public long getAndAdd(long delta)
+   {
+      return (long) VALUE.getAndAdd(this, delta);
+   }
+
+   public long addAndGet(long delta)
+   {
+      return (long) VALUE.getAndAdd(this, delta) + delta;
+   }
+
+   public long getAndIncrement()
+   {
+      return getAndAdd(1L);
+   }
+
+   public long incrementAndGet()
+   {
+      return addAndGet(1L);
+   }
+
+   @Override
+   public String toString()
+   {
+      return Long.toString(get());
+   }
+}
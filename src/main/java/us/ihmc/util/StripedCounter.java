@@ -0,0 +1,118 @@
+package us.ihmc.util;
+
+/**
+ * Counter that is incremented by many threads without contention. Garbage-free after the cells are
+ * created.
+ * <p>
+ * Every incrementing thread creates its own {@link Cell} during setup. A cell is a
+ * {@link PaddedVolatileLong} that is only written by its owner, so an increment is an opaque store
+ * without a compare-and-set and cells of different threads never share a cache line. Readers on any
+ * thread sum the cells with {@link #sum()}. The sum is not an atomic snapshot; increments that happen
+ * while summing may or may not be included.
+ * <p>
+ * For several counters that are incremented by the same threads, use a {@link StripedCounterFamily}
+ * so every thread registers once for all counters.
+ */
+public class StripedCounter
+{
+   private final Cell[] cells;
+   private volatile int numberOfCells = 0;
+
+   /**
+    * @param maximumNumberOfCells Maximum number of threads that increment the counter
+    */
+   public StripedCounter(int maximumNumberOfCells)
+   {
+      if (maximumNumberOfCells < 1)
+      {
+         throw new IllegalArgumentException("maximumNumberOfCells < 1");
+      }
+
+      cells = new Cell[maximumNumberOfCells];
+   }
+
+   /**
+    * Create a cell for the calling thread. Call during setup, a cell may only be used by one thread.
+    *
+    * @throws IllegalStateException if the maximum number of cells is already created
+    */
+   public synchronized Cell createCell()
+   {
+      if (numberOfCells >= cells.length)
+      {
+         throw new IllegalStateException("Cannot create more than " + cells.length + " cells");
+      }
+
+      Cell cell = new Cell();
+      cells[numberOfCells] = cell;
+      numberOfCells = numberOfCells + 1;
+      return cell;
+   }
+
+   /**
+    * @return Sum of all cells. Can be called from any thread.
+    */
+   public long sum()
+   {
+      long sum = 0;
+      int count = numberOfCells;
+      for (int i = 0; i < count; i++)
+      {
+         sum += cells[i].get();
+      }
+      return sum;
+   }
+
+   public int getNumberOfCells()
+   {
+      return numberOfCells;
+   }
+
+   public int getMaximumNumberOfCells()
+   {
+      return cells.length;
+   }
+
+   @Override
+   public String toString()
+   {
+      return Long.toString(sum());
+   }
+
+   /**
+    * Part of the counter owned by a single thread
+    */
+   public static final class Cell
+   {
+      private final PaddedVolatileLong value = new PaddedVolatileLong();
+
+      private Cell()
+      {
+      }
+
+      /**
+       * Increment the cell. May only be called by the owning thread.
+       */
+      public void increment()
+      {
+         add(1);
+      }
+
+      /**
+       * Add delta to the cell. May only be called by the owning thread.
+       */
+      public void add(long delta)
+      {
+         // Single writer, an opaque store is sufficient for readers on other threads
+         value.setOpaque(value.getOpaque() + delta);
+      }
+
+      /**
+       * @return Value of this cell. Can be called from any thread.
+       */
+      public long get()
+      {
+         return value.getOpaque();
+      }
+   }
+}
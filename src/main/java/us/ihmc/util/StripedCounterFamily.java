@@ -0,0 +1,175 @@
+package us.ihmc.util;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Objects;
+
+/**
+ * Family of counters, for example messages, overruns and faults, that are incremented by many
+ * threads without contention. Garbage-free after the threads are registered.
+ * <p>
+ * Every incrementing thread registers once during setup and gets {@link Cells} with one cell for
+ * every counter of the family. The cells of a thread are stored together in one array, padded on
+ * both sides, so they never share a cache line with the cells of another thread. Only the owning
+ * thread writes its cells, so an increment is an opaque store without a compare-and-set. Readers on
+ * any thread sum a counter over all threads with {@link #sum(int)}. The sum is not an atomic
+ * snapshot; increments that happen while summing may or may not be included.
+ *
+ * @see StripedCounter
+ */
+public class StripedCounterFamily
+{
+   private static final VarHandle VALUES = MethodHandles.arrayElementVarHandle(long[].class);
+
+   /**
+    * Number of longs before and after the cells of a thread, one cache line
+    */
+   private static final int PADDING = 8;
+
+   private final String[] counterNames;
+   private final Cells[] threads;
+   private volatile int numberOfThreads = 0;
+
+   /**
+    * @param maximumNumberOfThreads Maximum number of threads that increment the counters
+    * @param counterNames Name of every counter, the index of a name is the index of the counter
+    */
+   public StripedCounterFamily(int maximumNumberOfThreads, String... counterNames)
+   {
+      if (maximumNumberOfThreads < 1)
+      {
+         throw new IllegalArgumentException("maximumNumberOfThreads < 1");
+      }
+      if (counterNames.length == 0)
+      {
+         throw new IllegalArgumentException("A counter family needs at least one counter");
+      }
+
+      this.counterNames = counterNames.clone();
+      threads = new Cells[maximumNumberOfThreads];
+   }
+
+   /**
+    * Register the calling thread. Call during setup, the cells may only be used by one thread.
+    *
+    * @return Cells of the calling thread, one for every counter
+    * @throws IllegalStateException if the maximum number of threads is already registered
+    */
+   public synchronized Cells registerThread()
+   {
+      if (numberOfThreads >= threads.length)
+      {
+         throw new IllegalStateException("Cannot register more than " + threads.length + " threads");
+      }
+
+      Cells cells = new Cells(counterNames.length);
+      threads[numberOfThreads] = cells;
+      numberOfThreads = numberOfThreads + 1;
+      return cells;
+   }
+
+   /**
+    * @return Sum of the counter over all registered threads. Can be called from any thread.
+    */
+   public long sum(int counter)
+   {
+      long sum = 0;
+      int count = numberOfThreads;
+      for (int i = 0; i < count; i++)
+      {
+         sum += threads[i].get(counter);
+      }
+      return sum;
+   }
+
+   /**
+    * @return Index of the counter with the given name, -1 if there is no such counter
+    */
+   public int findCounter(String name)
+   {
+      for (int i = 0; i < counterNames.length; i++)
+      {
+         if (counterNames[i].equals(name))
+         {
+            return i;
+         }
+      }
+      return -1;
+   }
+
+   public String getCounterName(int counter)
+   {
+      return counterNames[counter];
+   }
+
+   public int getNumberOfCounters()
+   {
+      return counterNames.length;
+   }
+
+   public int getNumberOfThreads()
+   {
+      return numberOfThreads;
+   }
+
+   public int getMaximumNumberOfThreads()
+   {
+      return threads.length;
+   }
+
+   @Override
+   public String toString()
+   {
+      StringBuilder builder = new StringBuilder();
+      for (int i = 0; i < counterNames.length; i++)
+      {
+         if (i > 0)
+         {
+            builder.append(", ");
+         }
+         builder.append(counterNames[i]).append(": ").append(sum(i));
+      }
+      return builder.toString();
+   }
+
+   /**
+    * Cells of all counters of the family owned by a single thread
+    */
+   public static final class Cells
+   {
+      private final int numberOfCounters;
+      private final long[] values;
+
+      private Cells(int numberOfCounters)
+      {
+         this.numberOfCounters = numberOfCounters;
+         values = new long[numberOfCounters + 2 * PADDING];
+      }
+
+      /**
+       * Increment a counter. May only be called by the owning thread.
+       */
+      public void increment(int counter)
+      {
+         add(counter, 1);
+      }
+
+      /**
+       * Add delta to a counter. May only be called by the owning thread.
+       */
+      public void add(int counter, long delta)
+      {
+         // Single writer, an opaque store is sufficient for readers on other threads
+         int index = PADDING + Objects.checkIndex(counter, numberOfCounters);
+         VALUES.setOpaque(values, index, (long) VALUES.getOpaque(values, index) + delta);
+      }
+
+      /**
+       * @return Value of the counter for this thread. Can be called from any thread.
+       */
+      public long get(int counter)
+      {
+         return (long) VALUES.getOpaque(values, PADDING + Objects.checkIndex(counter, numberOfCounters));
+      }
+   }
+}
@@ -0,0 +1,46 @@
+package us.ihmc.realtime.concurrent;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import us.ihmc.concurrent.waitStrategies.BackoffWaitStrategy;
+
+public class BackoffWaitStrategyTest
+{
+   private static final long MIN_PARK_NANOS = 5000000L;
+   private static final long MAX_PARK_NANOS = 1000000000L;
+
+   @Test
+   public void parkWithoutYieldTest()
+   {
+      BackoffWaitStrategy waitStrategy = new BackoffWaitStrategy(0, 0, MIN_PARK_NANOS, MAX_PARK_NANOS);
+
+      // Without spin and yield iterations the first iteration already parks
+      long start = System.nanoTime();
+      waitStrategy.idle(0, Long.MAX_VALUE);
+      waitStrategy.idle(1, Long.MAX_VALUE);
+      Assertions.assertTrue(System.nanoTime() - start >= 3 * MIN_PARK_NANOS - MIN_PARK_NANOS / 2);
+      waitStrategy.waitCompleted();
+   }
+
+   @Test
+   public void resetTest()
+   {
+      BackoffWaitStrategy waitStrategy = new BackoffWaitStrategy(1, 0, MIN_PARK_NANOS, MAX_PARK_NANOS);
+
+      // A long wait backs off to long park times
+      for (int idleCount = 0; idleCount < 8; idleCount++)
+      {
+         waitStrategy.idle(idleCount, Long.MAX_VALUE);
+      }
+      waitStrategy.waitCompleted();
+
+      // The next wait starts parking at the minimum park time again
+      long start = System.nanoTime();
+      for (int idleCount = 0; idleCount < 3; idleCount++)
+      {
+         waitStrategy.idle(idleCount, Long.MAX_VALUE);
+      }
+      Assertions.assertTrue(System.nanoTime() - start < MAX_PARK_NANOS / 4);
+   }
+}
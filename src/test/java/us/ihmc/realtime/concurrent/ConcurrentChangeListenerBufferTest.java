@@ -0,0 +1,100 @@
+package us.ihmc.realtime.concurrent;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import us.ihmc.concurrent.dataStructures.ConcurrentChangeListenerDoubleBuffer;
+import us.ihmc.concurrent.dataStructures.ConcurrentChangeListenerIntBuffer;
+import us.ihmc.concurrent.dataStructures.ConcurrentChangeListenerLongBuffer;
+
+public class ConcurrentChangeListenerBufferTest
+{
+   @Test
+   public void singleThreadTest()
+   {
+      ConcurrentChangeListenerDoubleBuffer buffer = new ConcurrentChangeListenerDoubleBuffer(200);
+      Assertions.assertEquals(0, buffer.takeChanged());
+      Assertions.assertEquals(-1, buffer.nextChanged(0));
+
+      int[] indices = {0, 5, 63, 64, 130, 199};
+      for (int index : indices)
+      {
+         buffer.update(index, index * 0.5);
+      }
+      buffer.update(5, 10.0);
+
+      Assertions.assertTrue(buffer.hasChangedAndReset(63));
+      Assertions.assertFalse(buffer.hasChangedAndReset(63));
+
+      Assertions.assertEquals(5, buffer.takeChanged());
+      int expected = 0;
+      for (int i = buffer.nextChanged(0); i >= 0; i = buffer.nextChanged(i + 1))
+      {
+         if (indices[expected] == 63)
+         {
+            ++expected;
+         }
+         Assertions.assertEquals(indices[expected++], i);
+      }
+      Assertions.assertEquals(indices.length, expected);
+      Assertions.assertEquals(10.0, buffer.getValue(5), 0.0);
+      Assertions.assertEquals(0, buffer.takeChanged());
+
+      ConcurrentChangeListenerIntBuffer intBuffer = new ConcurrentChangeListenerIntBuffer.Builder(10).newInstance();
+      intBuffer.update(9, -4);
+      Assertions.assertEquals(1, intBuffer.takeChanged());
+      Assertions.assertEquals(9, intBuffer.nextChanged(0));
+      Assertions.assertEquals(-4, intBuffer.getValue(9));
+   }
+
+   @Test
+   public void test() throws InterruptedException
+   {
+      final int capacity = 10000;
+      final long iterations = 20L;
+      final int producers = 2;
+      final ConcurrentChangeListenerLongBuffer buffer = new ConcurrentChangeListenerLongBuffer(capacity);
+
+      // Each producer updates every other index with increasing values
+      Thread[] threads = new Thread[producers];
+      for (int p = 0; p < producers; p++)
+      {
+         final int producer = p;
+         threads[p] = new Thread(new Runnable()
+         {
+            public void run()
+            {
+               for (long value = 1; value <= iterations; value++)
+               {
+                  for (int i = producer; i < capacity; i += producers)
+                  {
+                     buffer.update(i, value);
+                  }
+               }
+            }
+         });
+         threads[p].start();
+      }
+
+      long[] lastValues = new long[capacity];
+      boolean done = false;
+      while (!done)
+      {
+         done = !threads[0].isAlive() && !threads[1].isAlive();
+
+         buffer.takeChanged();
+         for (int i = buffer.nextChanged(0); i >= 0; i = buffer.nextChanged(i + 1))
+         {
+            long value = buffer.getValue(i);
+            Assertions.assertTrue(value >= lastValues[i]);
+            lastValues[i] = value;
+         }
+      }
+
+      // No change is lost, the last value of every index has been reported
+      for (int i = 0; i < capacity; i++)
+      {
+         Assertions.assertEquals(iterations, lastValues[i]);
+      }
+   }
+}
@@ -0,0 +1,85 @@
+package us.ihmc.realtime.concurrent;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import us.ihmc.concurrent.ConcurrentConflatingQueue;
+
+public class ConcurrentConflatingQueueTest
+{
+   @Test
+   public void singleThreadTest()
+   {
+      ConcurrentConflatingQueue<long[]> queue = new ConcurrentConflatingQueue<>(() -> new long[2], 4);
+      Assertions.assertNull(queue.poll());
+      Assertions.assertThrows(IllegalStateException.class, () -> queue.commit());
+      Assertions.assertThrows(IllegalArgumentException.class, () -> queue.getCopyForWriting(4));
+
+      write(queue, 2, 10);
+      write(queue, 0, 20);
+      write(queue, 2, 11);
+      write(queue, 2, 12);
+
+      // Keys in order of first arrival, with their latest value
+      Assertions.assertEquals(12, queue.poll()[1]);
+      Assertions.assertEquals(2, queue.getLastPolledKey());
+
+      write(queue, 2, 13);
+      Assertions.assertEquals(20, queue.poll()[1]);
+      Assertions.assertEquals(0, queue.getLastPolledKey());
+      Assertions.assertEquals(13, queue.poll()[1]);
+      Assertions.assertNull(queue.poll());
+      Assertions.assertTrue(queue.isEmpty());
+   }
+
+   @Test
+   public void test()
+   {
+      final long iterations = 200000L;
+      final int numberOfKeys = 16;
+      final ConcurrentConflatingQueue<long[]> queue = new ConcurrentConflatingQueue<>(() -> new long[2], numberOfKeys);
+
+      // Producer, writes increasing values for all keys
+      new Thread(new Runnable()
+      {
+         public void run()
+         {
+            for (long value = 0; value < iterations; value++)
+            {
+               write(queue, (int) (value % numberOfKeys), value);
+            }
+         }
+      }).start();
+
+      long[] lastValues = new long[numberOfKeys];
+      Arrays.fill(lastValues, -1);
+      int finishedKeys = 0;
+      while (finishedKeys < numberOfKeys)
+      {
+         long[] value = queue.poll();
+         if (value != null)
+         {
+            int key = queue.getLastPolledKey();
+            Assertions.assertEquals(key, value[0]);
+            Assertions.assertEquals(key, value[1] % numberOfKeys);
+            Assertions.assertTrue(value[1] > lastValues[key]);
+            lastValues[key] = value[1];
+
+            if (value[1] >= iterations - numberOfKeys)
+            {
+               ++finishedKeys;
+            }
+         }
+      }
+   }
+
+   private static void write(ConcurrentConflatingQueue<long[]> queue, int key, long value)
+   {
+      long[] object = queue.getCopyForWriting(key);
+      object[0] = key;
+      object[1] = value;
+      queue.commit();
+   }
+}
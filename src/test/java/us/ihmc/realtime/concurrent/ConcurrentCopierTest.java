@@ -53,6 +53,25 @@ public class ConcurrentCopierTest
       }
    }
    
+   @Test
+   public void metricsTest()
+   {
+      final ConcurrentCopier<MutableTestObject> copier = new ConcurrentCopier<MutableTestObject>(new MutableTestObjectBuilder());
+      Assertions.assertNull(copier.getCopyForReading());
+
+      copier.getCopyForWriting().update(0, 1L);
+      copier.commit();
+      copier.getCopyForReading();
+      copier.getCopyForReading();
+      copier.getCopyForWriting().update(1, 2L);
+      copier.commit();
+      copier.getCopyForReading();
+
+      Assertions.assertEquals(2, copier.getCommitCount());
+      Assertions.assertEquals(3, copier.getReadCount());
+      Assertions.assertEquals(1, copier.getStaleReadCount());
+   }
+   
    @Test
    public void test()
    {
@@ -0,0 +1,142 @@
+package us.ihmc.realtime.concurrent;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import us.ihmc.concurrent.ConcurrentMessageRingBuffer;
+
+public class ConcurrentMessageRingBufferTest
+{
+   @Test
+   public void singleThreadTest()
+   {
+      ConcurrentMessageRingBuffer buffer = new ConcurrentMessageRingBuffer(256);
+      VerifyingHandler handler = new VerifyingHandler();
+
+      Assertions.assertEquals(120, buffer.getMaxMessageLength());
+      Assertions.assertFalse(buffer.poll());
+
+      // Fill the buffer with 24 byte records, the last one does not fit
+      for (long i = 0; i < 10; i++)
+      {
+         Assertions.assertTrue(write(buffer, i, 16));
+      }
+      Assertions.assertFalse(write(buffer, 10, 16));
+      buffer.commit();
+
+      Assertions.assertTrue(buffer.poll());
+      for (int i = 0; i < 4; i++)
+      {
+         Assertions.assertTrue(buffer.read(handler));
+      }
+      buffer.flush();
+
+      // 16 bytes left before the end of the buffer, the record is written at the start after a padding record
+      Assertions.assertTrue(write(buffer, 10, 32));
+      buffer.commit();
+
+      Assertions.assertTrue(buffer.poll());
+      while (buffer.read(handler));
+      buffer.flush();
+      Assertions.assertEquals(11, handler.messages);
+      Assertions.assertFalse(buffer.read(handler));
+   }
+
+   @Test
+   public void maxMessageLengthTest()
+   {
+      // A buffer that only holds a header accepts empty messages
+      ConcurrentMessageRingBuffer headerOnly = new ConcurrentMessageRingBuffer(ConcurrentMessageRingBuffer.HEADER_LENGTH);
+      Assertions.assertEquals(0, headerOnly.getMaxMessageLength());
+      Assertions.assertTrue(write(headerOnly, 0, 0));
+
+      ConcurrentMessageRingBuffer buffer = new ConcurrentMessageRingBuffer(32);
+      VerifyingHandler handler = new VerifyingHandler();
+      Assertions.assertEquals(8, buffer.getMaxMessageLength());
+      Assertions.assertThrows(IllegalArgumentException.class, () -> buffer.tryClaim(0, 9));
+
+      // End the last record 8 bytes before the end of the buffer, the worst case for the padding record
+      for (long i = 0; i < 3; i++)
+      {
+         Assertions.assertTrue(write(buffer, i, 0));
+      }
+      buffer.commit();
+      Assertions.assertTrue(buffer.poll());
+      while (buffer.read(handler));
+      buffer.flush();
+
+      // A message of the maximum length still fits in the empty buffer
+      Assertions.assertTrue(write(buffer, 3, 8));
+      buffer.commit();
+      Assertions.assertTrue(buffer.poll());
+      while (buffer.read(handler));
+      Assertions.assertEquals(4, handler.messages);
+   }
+
+   @Test
+   public void test()
+   {
+      final long iterations = 100000L;
+      final long seed = 89126450L;
+      final ConcurrentMessageRingBuffer buffer = new ConcurrentMessageRingBuffer(65536);
+
+      // Producer
+      new Thread(new Runnable()
+      {
+         public void run()
+         {
+            Random random = new Random(seed);
+            for (long i = 0; i < iterations; i++)
+            {
+               int length = 8 * random.nextInt(32);
+               while (!write(buffer, i, length)); // Spinlock
+               buffer.commit();
+            }
+         }
+      }).start();
+
+      VerifyingHandler handler = new VerifyingHandler();
+      while (handler.messages < iterations)
+      {
+         if (buffer.poll())
+         {
+            while (buffer.read(handler));
+            buffer.flush();
+         }
+      }
+   }
+
+   private static boolean write(ConcurrentMessageRingBuffer buffer, long sequence, int length)
+   {
+      int offset = buffer.tryClaim((int) (sequence % 7), length);
+      if (offset < 0)
+      {
+         return false;
+      }
+
+      ByteBuffer data = buffer.getBuffer();
+      for (int i = 0; i < length; i += 8)
+      {
+         data.putLong(offset + i, sequence + i);
+      }
+      return true;
+   }
+
+   private static class VerifyingHandler implements ConcurrentMessageRingBuffer.MessageHandler
+   {
+      private long messages = 0;
+
+      public void onMessage(int type, ByteBuffer buffer, int offset, int length)
+      {
+         Assertions.assertEquals(messages % 7, type);
+         for (int i = 0; i < length; i += 8)
+         {
+            Assertions.assertEquals(messages + i, buffer.getLong(offset + i));
+         }
+         ++messages;
+      }
+   }
+}
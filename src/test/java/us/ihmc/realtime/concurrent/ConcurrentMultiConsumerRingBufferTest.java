@@ -0,0 +1,157 @@
+package us.ihmc.realtime.concurrent;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import us.ihmc.concurrent.Builder;
+import us.ihmc.concurrent.ConcurrentMultiConsumerRingBuffer;
+
+public class ConcurrentMultiConsumerRingBufferTest
+{
+   @Test
+   public void singleThreadTest()
+   {
+      ConcurrentMultiConsumerRingBuffer<MutableLong> buffer = new ConcurrentMultiConsumerRingBuffer<MutableLong>(new MutableLongBuilder(), 4);
+      ConcurrentMultiConsumerRingBuffer<MutableLong>.Consumer decoder = buffer.createConsumer();
+      ConcurrentMultiConsumerRingBuffer<MutableLong>.Consumer logger = buffer.createConsumer(decoder);
+
+      for (int i = 0; i < 4; i++)
+      {
+         buffer.next().value = i;
+      }
+      Assertions.assertNull(buffer.next());
+      buffer.commit();
+
+      // The logger cannot see entries before the decoder flushed them
+      Assertions.assertFalse(logger.poll());
+      Assertions.assertTrue(decoder.poll());
+      decoder.read().decoded = 10;
+      decoder.read().decoded = 11;
+      decoder.flush();
+
+      // The producer is gated by the logger, not by the decoder
+      Assertions.assertNull(buffer.next());
+
+      Assertions.assertTrue(logger.poll());
+      Assertions.assertEquals(10, logger.read().decoded);
+      Assertions.assertEquals(11, logger.read().decoded);
+      Assertions.assertNull(logger.read());
+      logger.flush();
+
+      Assertions.assertNotNull(buffer.next());
+      Assertions.assertNotNull(buffer.next());
+      Assertions.assertNull(buffer.next());
+   }
+
+   @Test
+   public void test()
+   {
+      final long iterations = 100000L;
+
+      final ConcurrentMultiConsumerRingBuffer<MutableLong> buffer = new ConcurrentMultiConsumerRingBuffer<MutableLong>(new MutableLongBuilder(), 256);
+      final ConcurrentMultiConsumerRingBuffer<MutableLong>.Consumer decoder = buffer.createConsumer();
+      final ConcurrentMultiConsumerRingBuffer<MutableLong>.Consumer independent = buffer.createConsumer();
+      ConcurrentMultiConsumerRingBuffer<MutableLong>.Consumer logger = buffer.createConsumer(decoder);
+
+      // Producer
+      new Thread(new Runnable()
+      {
+         public void run()
+         {
+            for (long value = 0; value < iterations; value++)
+            {
+               MutableLong next;
+               while ((next = buffer.next()) == null); // Spinlock
+               next.value = value;
+               buffer.commit();
+            }
+         }
+      }).start();
+
+      // Decoder stage
+      new Thread(new Runnable()
+      {
+         public void run()
+         {
+            long received = 0;
+            while (received < iterations)
+            {
+               if (decoder.poll())
+               {
+                  MutableLong value;
+                  while ((value = decoder.read()) != null)
+                  {
+                     value.decoded = 2 * value.value;
+                     ++received;
+                  }
+                  decoder.flush();
+               }
+            }
+         }
+      }).start();
+
+      // Independent consumer, sees every entry
+      final long[] independentReceived = new long[1];
+      Thread independentThread = new Thread(new Runnable()
+      {
+         public void run()
+         {
+            while (independentReceived[0] < iterations)
+            {
+               if (independent.poll())
+               {
+                  MutableLong value;
+                  while ((value = independent.read()) != null)
+                  {
+                     Assertions.assertEquals(independentReceived[0], value.value);
+                     ++independentReceived[0];
+                  }
+                  independent.flush();
+               }
+            }
+         }
+      });
+      independentThread.start();
+
+      // Logger stage, only sees decoded entries
+      long received = 0;
+      while (received < iterations)
+      {
+         if (logger.poll())
+         {
+            MutableLong value;
+            while ((value = logger.read()) != null)
+            {
+               Assertions.assertEquals(received, value.value);
+               Assertions.assertEquals(2 * received, value.decoded);
+               ++received;
+            }
+            logger.flush();
+         }
+      }
+
+      try
+      {
+         independentThread.join();
+      }
+      catch (InterruptedException e)
+      {
+         throw new RuntimeException(e);
+      }
+      Assertions.assertEquals(iterations, independentReceived[0]);
+   }
+
+   private class MutableLong
+   {
+      public long value;
+      public long decoded;
+   }
+
+   public class MutableLongBuilder implements Builder<MutableLong>
+   {
+      public MutableLong newInstance()
+      {
+         return new MutableLong();
+      }
+   }
+}
@@ -0,0 +1,117 @@
+package us.ihmc.realtime.concurrent;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import us.ihmc.concurrent.Builder;
+import us.ihmc.concurrent.ConcurrentMultiProducerRingBuffer;
+
+public class ConcurrentMultiProducerRingBufferTest
+{
+   @Test
+   public void singleThreadTest()
+   {
+      ConcurrentMultiProducerRingBuffer<MutableLong> buffer = new ConcurrentMultiProducerRingBuffer<MutableLong>(new MutableLongBuilder(), 6);
+      ConcurrentMultiProducerRingBuffer<MutableLong>.Producer first = buffer.createProducer();
+      ConcurrentMultiProducerRingBuffer<MutableLong>.Producer second = buffer.createProducer();
+
+      Assertions.assertEquals(8, buffer.getCapacity());
+      Assertions.assertFalse(buffer.poll());
+
+      first.next().value = 0;
+      second.next().value = 1;
+      second.commit();
+
+      // The slot claimed by the first producer is not committed yet and holds back the second one
+      Assertions.assertFalse(buffer.poll());
+
+      first.commit();
+      Assertions.assertTrue(buffer.poll());
+      Assertions.assertEquals(0, buffer.read().value);
+      Assertions.assertEquals(1, buffer.read().value);
+      Assertions.assertNull(buffer.read());
+      buffer.flush();
+
+      for (int i = 0; i < buffer.getCapacity() - 1; i++)
+      {
+         Assertions.assertNotNull(first.next());
+      }
+      Assertions.assertNull(second.next());
+      first.commit();
+
+      Assertions.assertTrue(buffer.poll());
+      int read = 0;
+      while (buffer.read() != null)
+      {
+         ++read;
+      }
+      buffer.flush();
+      Assertions.assertEquals(buffer.getCapacity() - 1, read);
+      Assertions.assertNotNull(second.next());
+   }
+
+   @Test
+   public void test()
+   {
+      final int producers = 3;
+      final long iterations = 100000L;
+
+      final ConcurrentMultiProducerRingBuffer<MutableLong> buffer = new ConcurrentMultiProducerRingBuffer<MutableLong>(new MutableLongBuilder(), 1024);
+
+      for (int p = 0; p < producers; p++)
+      {
+         final long producerId = p;
+         final ConcurrentMultiProducerRingBuffer<MutableLong>.Producer producer = buffer.createProducer();
+         new Thread(new Runnable()
+         {
+            public void run()
+            {
+               for (long value = 0; value < iterations; value++)
+               {
+                  MutableLong next;
+                  while ((next = producer.next()) == null); // Spinlock
+                  next.producer = producerId;
+                  next.value = value;
+                  producer.commit();
+               }
+            }
+         }).start();
+      }
+
+      long[] expected = new long[producers];
+      long received = 0;
+      while (received < producers * iterations)
+      {
+         if (buffer.poll())
+         {
+            MutableLong value;
+            while ((value = buffer.read()) != null)
+            {
+               Assertions.assertEquals(expected[(int) value.producer], value.value);
+               ++expected[(int) value.producer];
+               ++received;
+            }
+            buffer.flush();
+         }
+      }
+
+      for (int p = 0; p < producers; p++)
+      {
+         Assertions.assertEquals(iterations, expected[p]);
+      }
+   }
+
+   private class MutableLong
+   {
+      public long producer;
+      public long value;
+   }
+
+   public class MutableLongBuilder implements Builder<MutableLong>
+   {
+      public MutableLong newInstance()
+      {
+         return new MutableLong();
+      }
+   }
+}
@@ -0,0 +1,138 @@
+package us.ihmc.realtime.concurrent;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import us.ihmc.concurrent.Builder;
+import us.ihmc.concurrent.ConcurrentMultiReaderCopier;
+
+public class ConcurrentMultiReaderCopierTest
+{
+   @Test
+   public void singleThreadTest()
+   {
+      ConcurrentMultiReaderCopier<MutableTestObject> copier = new ConcurrentMultiReaderCopier<>(2, new MutableTestObjectBuilder());
+      ConcurrentMultiReaderCopier<MutableTestObject>.Reader first = copier.createReader();
+      ConcurrentMultiReaderCopier<MutableTestObject>.Reader second = copier.createReader();
+      Assertions.assertThrows(IllegalStateException.class, () -> copier.createReader());
+
+      Assertions.assertNull(first.getCopyForReading());
+
+      copier.getCopyForWriting().update(0, 1234L);
+      copier.commit();
+      MutableTestObject firstObject = first.getCopyForReading();
+      Assertions.assertEquals(0, firstObject.iteration);
+
+      // The writer never gets an object held by a reader or the latest object
+      for (long i = 1; i < 10; i++)
+      {
+         MutableTestObject next = copier.getCopyForWriting();
+         Assertions.assertNotSame(firstObject, next);
+         next.update(i, i);
+         copier.commit();
+      }
+
+      Assertions.assertEquals(0, firstObject.iteration);
+      Assertions.assertEquals(9, first.getCopyForReading().iteration);
+      Assertions.assertEquals(9, second.getCopyForReading().iteration);
+   }
+
+   @Test
+   public void test() throws InterruptedException
+   {
+      final long iterations = 100000L;
+      final long seed = 89126450L;
+      final int numberOfReaders = 3;
+
+      final ConcurrentMultiReaderCopier<MutableTestObject> copier = new ConcurrentMultiReaderCopier<>(numberOfReaders, new MutableTestObjectBuilder());
+      final Throwable[] failures = new Throwable[numberOfReaders];
+
+      // Consumers
+      Thread[] readers = new Thread[numberOfReaders];
+      for (int i = 0; i < numberOfReaders; i++)
+      {
+         final int readerIndex = i;
+         final ConcurrentMultiReaderCopier<MutableTestObject>.Reader reader = copier.createReader();
+         readers[i] = new Thread(new Runnable()
+         {
+            public void run()
+            {
+               try
+               {
+                  long lastIteration = -1;
+                  while (lastIteration < iterations - 1)
+                  {
+                     MutableTestObject object = reader.getCopyForReading();
+                     if (object != null)
+                     {
+                        object.test();
+                        Assertions.assertTrue(object.iteration >= lastIteration);
+                        lastIteration = object.iteration;
+                     }
+                  }
+               }
+               catch (Throwable e)
+               {
+                  failures[readerIndex] = e;
+               }
+            }
+         });
+         readers[i].start();
+      }
+
+      // Producer
+      Random random = new Random(seed);
+      for (long value = 0; value < iterations; value++)
+      {
+         MutableTestObject next = copier.getCopyForWriting();
+         next.update(value, random.nextLong());
+         copier.commit();
+      }
+
+      for (int i = 0; i < numberOfReaders; i++)
+      {
+         readers[i].join();
+         if (failures[i] != null)
+         {
+            Assertions.fail(failures[i]);
+         }
+      }
+   }
+
+   private class MutableTestObject
+   {
+      public long iteration;
+      public long seed;
+      public double[] values = new double[100];
+
+      public void update(long iteration, long seed)
+      {
+         this.iteration = iteration;
+         this.seed = seed;
+         Random random = new Random(seed);
+         for (int i = 0; i < values.length; i++)
+         {
+            values[i] = random.nextDouble();
+         }
+      }
+
+      public void test()
+      {
+         Random random = new Random(seed);
+         for (int i = 0; i < values.length; i++)
+         {
+            Assertions.assertEquals(values[i], random.nextDouble(), 1e-12);
+         }
+      }
+   }
+
+   public class MutableTestObjectBuilder implements Builder<MutableTestObject>
+   {
+      public MutableTestObject newInstance()
+      {
+         return new MutableTestObject();
+      }
+   }
+}
@@ -0,0 +1,102 @@
+package us.ihmc.realtime.concurrent;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import us.ihmc.concurrent.ConcurrentMultiWriterCopier;
+
+public class ConcurrentMultiWriterCopierTest
+{
+   @Test
+   public void singleThreadTest()
+   {
+      ConcurrentMultiWriterCopier<long[]> copier = new ConcurrentMultiWriterCopier<>(2, () -> new long[2]);
+      ConcurrentMultiWriterCopier<long[]>.Writer first = copier.createWriter();
+      ConcurrentMultiWriterCopier<long[]>.Writer second = copier.createWriter();
+      Assertions.assertThrows(IllegalStateException.class, () -> copier.createWriter());
+      Assertions.assertThrows(IllegalStateException.class, () -> first.commit());
+
+      Assertions.assertNull(copier.getCopyForReading());
+
+      first.getCopyForWriting()[0] = 1;
+      long[] pending = second.getCopyForWriting();
+      pending[0] = 2;
+      first.commit();
+
+      long[] read = copier.getCopyForReading();
+      Assertions.assertEquals(1, read[0]);
+
+      // The most recent commit wins, regardless of which writer started first
+      second.commit();
+      first.getCopyForWriting()[0] = 3;
+      Assertions.assertEquals(2, copier.getCopyForReading()[0]);
+      Assertions.assertEquals(2, copier.getCopyForReading()[0]);
+      first.commit();
+      read = copier.getCopyForReading();
+      Assertions.assertEquals(3, read[0]);
+
+      // Writers never get the object being read
+      for (int i = 0; i < 10; i++)
+      {
+         Assertions.assertNotSame(read, first.getCopyForWriting());
+         first.commit();
+      }
+   }
+
+   @Test
+   public void test() throws InterruptedException
+   {
+      final long iterations = 100000L;
+      final int numberOfWriters = 3;
+      final ConcurrentMultiWriterCopier<long[]> copier = new ConcurrentMultiWriterCopier<>(numberOfWriters, () -> new long[32]);
+
+      // Producers, every object holds a writer id and a consistent sequence of values
+      Thread[] writers = new Thread[numberOfWriters];
+      for (int w = 0; w < numberOfWriters; w++)
+      {
+         final long writerId = w;
+         final ConcurrentMultiWriterCopier<long[]>.Writer writer = copier.createWriter();
+         writers[w] = new Thread(new Runnable()
+         {
+            public void run()
+            {
+               for (long value = 0; value < iterations; value++)
+               {
+                  long[] object = writer.getCopyForWriting();
+                  object[0] = writerId;
+                  for (int i = 1; i < object.length; i++)
+                  {
+                     object[i] = value + i;
+                  }
+                  writer.commit();
+               }
+            }
+         });
+         writers[w].start();
+      }
+
+      long[] lastValues = new long[numberOfWriters];
+      boolean done = false;
+      while (!done)
+      {
+         done = true;
+         for (Thread writer : writers)
+         {
+            done &= !writer.isAlive();
+         }
+
+         long[] object = copier.getCopyForReading();
+         if (object != null)
+         {
+            int writerId = (int) object[0];
+            long value = object[1] - 1;
+            for (int i = 1; i < object.length; i++)
+            {
+               Assertions.assertEquals(value + i, object[i]);
+            }
+            Assertions.assertTrue(value >= lastValues[writerId]);
+            lastValues[writerId] = value;
+         }
+      }
+   }
+}
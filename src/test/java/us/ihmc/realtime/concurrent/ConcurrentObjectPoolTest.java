@@ -0,0 +1,121 @@
+package us.ihmc.realtime.concurrent;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import us.ihmc.concurrent.ConcurrentObjectPool;
+import us.ihmc.concurrent.ConcurrentRingBuffer;
+
+public class ConcurrentObjectPoolTest
+{
+   @Test
+   public void singleThreadTest()
+   {
+      ConcurrentObjectPool<long[]> pool = new ConcurrentObjectPool<>(3, () -> new long[1]);
+
+      long[] first = pool.acquire();
+      long[] second = pool.acquire();
+      long[] third = pool.acquire();
+      Assertions.assertNotNull(third);
+      Assertions.assertNull(pool.acquire());
+      Assertions.assertEquals(1, pool.getExhaustedCount());
+      Assertions.assertEquals(3, pool.getHighWaterMark());
+
+      pool.release(second);
+      pool.release(first);
+      Assertions.assertEquals(0, pool.getFreeCount());
+      Assertions.assertSame(first, pool.acquire());
+      Assertions.assertEquals(1, pool.getFreeCount());
+
+      pool.release(third);
+      Assertions.assertEquals(1, pool.drainReturned());
+      Assertions.assertSame(third, pool.acquire());
+      Assertions.assertSame(second, pool.acquire());
+      Assertions.assertEquals(3, pool.getHighWaterMark());
+
+      Assertions.assertThrows(RuntimeException.class, () -> new ConcurrentObjectPool<>(0, () -> new long[1]));
+
+      // Releasing null is rejected and does not block the return queue
+      Assertions.assertThrows(NullPointerException.class, () -> pool.release(null));
+      pool.release(first);
+      Assertions.assertEquals(1, pool.drainReturned());
+   }
+
+   @Test
+   public void test() throws InterruptedException
+   {
+      final long iterations = 10000L;
+      final int consumers = 2;
+      final ConcurrentObjectPool<long[]> pool = new ConcurrentObjectPool<>(16, () -> new long[2]);
+
+      @SuppressWarnings({"unchecked", "rawtypes"})
+      final ConcurrentRingBuffer<long[][]>[] channels = new ConcurrentRingBuffer[consumers];
+      final Throwable[] failures = new Throwable[consumers];
+
+      // Consumers each get every other message and release it from their own thread
+      Thread[] threads = new Thread[consumers];
+      for (int c = 0; c < consumers; c++)
+      {
+         final int consumerIndex = c;
+         final ConcurrentRingBuffer<long[][]> channel = new ConcurrentRingBuffer<>(() -> new long[1][], 8);
+         channels[c] = channel;
+         threads[c] = new Thread(new Runnable()
+         {
+            public void run()
+            {
+               try
+               {
+                  long expected = consumerIndex;
+                  while (expected < iterations)
+                  {
+                     if (channel.poll())
+                     {
+                        long[][] entry;
+                        while ((entry = channel.read()) != null)
+                        {
+                           long[] message = entry[0];
+                           Assertions.assertEquals(expected, message[0]);
+                           Assertions.assertEquals(-expected, message[1]);
+                           pool.release(message);
+                           expected += consumers;
+                        }
+                        channel.flush();
+                     }
+                  }
+               }
+               catch (Throwable e)
+               {
+                  failures[consumerIndex] = e;
+               }
+            }
+         });
+         threads[c].start();
+      }
+
+      for (long value = 0; value < iterations; value++)
+      {
+         long[] message;
+         while ((message = pool.acquire()) == null); // Spinlock
+         message[0] = value;
+         message[1] = -value;
+
+         ConcurrentRingBuffer<long[][]> channel = channels[(int) (value % consumers)];
+         long[][] entry;
+         while ((entry = channel.next()) == null); // Spinlock
+         entry[0] = message;
+         channel.commit();
+      }
+
+      for (int c = 0; c < consumers; c++)
+      {
+         threads[c].join();
+         if (failures[c] != null)
+         {
+            Assertions.fail(failures[c]);
+         }
+      }
+
+      pool.drainReturned();
+      Assertions.assertEquals(pool.getCapacity(), pool.getFreeCount());
+   }
+}
@@ -0,0 +1,88 @@
+package us.ihmc.realtime.concurrent;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import us.ihmc.concurrent.ConcurrentPriorityChannel;
+
+public class ConcurrentPriorityChannelTest
+{
+   @Test
+   public void singleThreadTest()
+   {
+      ConcurrentPriorityChannel<long[]> channel = new ConcurrentPriorityChannel<>(() -> new long[1], 2, 8);
+      Assertions.assertEquals(2, channel.getNumberOfLanes());
+      Assertions.assertNull(channel.poll());
+      Assertions.assertEquals(-1, channel.getLastPolledLane());
+      Assertions.assertEquals(1, channel.getEmptyPollCount());
+
+      // Fill the low priority lane
+      for (long i = 0; i < 8; i++)
+      {
+         channel.next(1)[0] = i;
+      }
+      Assertions.assertNull(channel.next(1));
+      Assertions.assertEquals(1, channel.getDropCount(1));
+      channel.commit(1);
+
+      Assertions.assertEquals(0, channel.poll()[0]);
+      Assertions.assertEquals(1, channel.getLastPolledLane());
+
+      // A high priority entry overtakes the queued low priority entries
+      channel.next(0)[0] = 100;
+      channel.commit(0);
+      Assertions.assertEquals(100, channel.poll()[0]);
+      Assertions.assertEquals(0, channel.getLastPolledLane());
+
+      for (long i = 1; i < 8; i++)
+      {
+         Assertions.assertEquals(i, channel.poll()[0]);
+      }
+      Assertions.assertNull(channel.poll());
+      Assertions.assertEquals(0, channel.getOccupancy(1));
+      Assertions.assertEquals(0, channel.getDropCount(0));
+
+      // Only polls that find every lane empty are counted
+      Assertions.assertEquals(2, channel.getEmptyPollCount());
+   }
+
+   @Test
+   public void test()
+   {
+      final long iterations = 100000L;
+      final int lanes = 3;
+      final ConcurrentPriorityChannel<long[]> channel = new ConcurrentPriorityChannel<>(() -> new long[2], 16, 64, 256);
+
+      // Producer, every lane carries its own increasing sequence
+      new Thread(new Runnable()
+      {
+         public void run()
+         {
+            long[] sequences = new long[lanes];
+            for (long i = 0; i < iterations; i++)
+            {
+               int lane = (int) (i % lanes);
+               long[] next;
+               while ((next = channel.next(lane)) == null); // Spinlock
+               next[0] = lane;
+               next[1] = sequences[lane]++;
+               channel.commit(lane);
+            }
+         }
+      }).start();
+
+      long[] expected = new long[lanes];
+      long received = 0;
+      while (received < iterations)
+      {
+         long[] entry = channel.poll();
+         if (entry != null)
+         {
+            int lane = channel.getLastPolledLane();
+            Assertions.assertEquals(lane, entry[0]);
+            Assertions.assertEquals(expected[lane]++, entry[1]);
+            ++received;
+         }
+      }
+   }
+}
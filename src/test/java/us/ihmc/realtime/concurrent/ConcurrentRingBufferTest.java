@@ -23,10 +23,14 @@ import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.Random;
 
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import us.ihmc.concurrent.Builder;
 import us.ihmc.concurrent.ConcurrentRingBuffer;
+import us.ihmc.concurrent.EntryHandler;
+import us.ihmc.concurrent.waitStrategies.BackoffWaitStrategy;
+import us.ihmc.concurrent.waitStrategies.BlockingWaitStrategy;
 
 public class ConcurrentRingBufferTest
 {
@@ -112,6 +116,145 @@ public class ConcurrentRingBufferTest
       Files.write(Paths.get("data.m"), data.getBytes());
    }
 
+   @Test
+   public void batchTest()
+   {
+      final ConcurrentRingBuffer<MutableLong> concurrentRingBuffer = new ConcurrentRingBuffer<MutableLong>(new MutableLongBuilder(), 16);
+      final long[] expected = new long[1];
+      EntryHandler<MutableLong> handler = new EntryHandler<MutableLong>()
+      {
+         public void onEntry(MutableLong entry)
+         {
+            Assertions.assertEquals(expected[0]++, entry.value);
+         }
+      };
+
+      Assertions.assertThrows(IllegalArgumentException.class, () -> concurrentRingBuffer.next(17));
+
+      long value = 0;
+      long first = concurrentRingBuffer.next(10);
+      Assertions.assertEquals(0, first);
+      for (int i = 0; i < 10; i++)
+      {
+         concurrentRingBuffer.get(first + i).value = value++;
+      }
+
+      // Not enough space left, nothing is claimed
+      Assertions.assertEquals(-1, concurrentRingBuffer.next(7));
+      first = concurrentRingBuffer.next(6);
+      for (int i = 0; i < 6; i++)
+      {
+         concurrentRingBuffer.get(first + i).value = value++;
+      }
+      concurrentRingBuffer.commit();
+
+      Assertions.assertEquals(4, concurrentRingBuffer.drain(handler, 4));
+      Assertions.assertEquals(12, concurrentRingBuffer.drain(handler, 100));
+      Assertions.assertEquals(0, concurrentRingBuffer.drain(handler, 100));
+      Assertions.assertEquals(16, expected[0]);
+
+      Assertions.assertEquals(16, concurrentRingBuffer.next(15));
+   }
+
+   @Test
+   public void metricsTest()
+   {
+      final ConcurrentRingBuffer<MutableLong> concurrentRingBuffer = new ConcurrentRingBuffer<MutableLong>(new MutableLongBuilder(), 4);
+
+      Assertions.assertFalse(concurrentRingBuffer.poll());
+      Assertions.assertEquals(1, concurrentRingBuffer.getEmptyPollCount());
+
+      for (int i = 0; i < 4; i++)
+      {
+         Assertions.assertNotNull(concurrentRingBuffer.next());
+         concurrentRingBuffer.commit();
+      }
+      Assertions.assertNull(concurrentRingBuffer.next());
+      Assertions.assertEquals(-1, concurrentRingBuffer.next(2));
+      Assertions.assertEquals(2, concurrentRingBuffer.getProducerFullCount());
+      Assertions.assertEquals(4, concurrentRingBuffer.getCommitCount());
+      Assertions.assertEquals(0, concurrentRingBuffer.getHighWaterMark());
+
+      Assertions.assertTrue(concurrentRingBuffer.poll());
+      Assertions.assertEquals(4, concurrentRingBuffer.getHighWaterMark());
+      concurrentRingBuffer.read();
+      concurrentRingBuffer.read();
+      concurrentRingBuffer.flush();
+      Assertions.assertEquals(2, concurrentRingBuffer.getOccupancy());
+      Assertions.assertEquals(1, concurrentRingBuffer.getEmptyPollCount());
+   }
+
+   @Test
+   public void highWaterMarkTest()
+   {
+      final ConcurrentRingBuffer<MutableLong> concurrentRingBuffer = new ConcurrentRingBuffer<MutableLong>(new MutableLongBuilder(), 16);
+
+      // A consumer that keeps up does not raise the high-water mark, also after several laps
+      for (int i = 0; i < 100; i++)
+      {
+         concurrentRingBuffer.next().value = i;
+         concurrentRingBuffer.commit();
+         Assertions.assertTrue(concurrentRingBuffer.poll());
+         Assertions.assertEquals(i, concurrentRingBuffer.read().value);
+         concurrentRingBuffer.flush();
+      }
+      Assertions.assertEquals(1, concurrentRingBuffer.getHighWaterMark());
+
+      for (int i = 0; i < 8; i++)
+      {
+         concurrentRingBuffer.next();
+         concurrentRingBuffer.commit();
+      }
+      Assertions.assertTrue(concurrentRingBuffer.poll());
+      Assertions.assertEquals(8, concurrentRingBuffer.getHighWaterMark());
+   }
+
+   @Test
+   public void waitStrategyTest()
+   {
+      final long iterations = 10000L;
+      final ConcurrentRingBuffer<MutableLong> concurrentRingBuffer = new ConcurrentRingBuffer<MutableLong>(new MutableLongBuilder(), 16);
+      concurrentRingBuffer.setProducerWaitStrategy(new BackoffWaitStrategy());
+      concurrentRingBuffer.setConsumerWaitStrategy(new BlockingWaitStrategy());
+
+      Assertions.assertFalse(concurrentRingBuffer.awaitPoll(1000000));
+      for (int i = 0; i < 16; i++)
+      {
+         concurrentRingBuffer.next();
+      }
+      Assertions.assertNull(concurrentRingBuffer.awaitNext(1000000));
+      concurrentRingBuffer.commit();
+      Assertions.assertTrue(concurrentRingBuffer.awaitPoll(1000000));
+      while (concurrentRingBuffer.read() != null);
+      concurrentRingBuffer.flush();
+
+      // Producer
+      new Thread(new Runnable()
+      {
+         public void run()
+         {
+            for (long value = 0; value < iterations; value++)
+            {
+               MutableLong next = concurrentRingBuffer.awaitNext(Long.MAX_VALUE / 2);
+               next.value = value;
+               concurrentRingBuffer.commit();
+            }
+         }
+      }).start();
+
+      long expected = 0;
+      while (expected < iterations)
+      {
+         Assertions.assertTrue(concurrentRingBuffer.awaitPoll(10000000000L));
+         MutableLong value;
+         while ((value = concurrentRingBuffer.read()) != null)
+         {
+            Assertions.assertEquals(expected++, value.value);
+         }
+         concurrentRingBuffer.flush();
+      }
+   }
+
    private class MutableLong
    {
       public long value;
@@ -0,0 +1,90 @@
+package us.ihmc.realtime.concurrent;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import us.ihmc.concurrent.ConcurrentSeqLockBuffer;
+
+public class ConcurrentSeqLockBufferTest
+{
+   @Test
+   public void singleThreadTest()
+   {
+      ConcurrentSeqLockBuffer buffer = new ConcurrentSeqLockBuffer(64);
+      Assertions.assertFalse(buffer.hasNewData(0));
+
+      buffer.beginWrite();
+      buffer.putDouble(0, 1.5);
+      buffer.putLong(8, -3L);
+      buffer.putInt(16, 7);
+      buffer.putBoolean(20, true);
+      Assertions.assertThrows(IllegalStateException.class, () -> buffer.beginWrite());
+
+      long staleVersion = 0;
+      Assertions.assertFalse(buffer.validate(staleVersion));
+      buffer.endWrite();
+      Assertions.assertThrows(IllegalStateException.class, () -> buffer.endWrite());
+
+      Assertions.assertTrue(buffer.hasNewData(staleVersion));
+      long version = buffer.beginRead();
+      Assertions.assertEquals(1.5, buffer.getDouble(0), 0.0);
+      Assertions.assertEquals(-3L, buffer.getLong(8));
+      Assertions.assertEquals(7, buffer.getInt(16));
+      Assertions.assertTrue(buffer.getBoolean(20));
+      Assertions.assertTrue(buffer.validate(version));
+      Assertions.assertFalse(buffer.hasNewData(version));
+
+      // A write during the read invalidates it
+      version = buffer.beginRead();
+      buffer.writeDoubles(24, new double[] {1.0, 2.0}, 0, 2);
+      Assertions.assertFalse(buffer.validate(version));
+
+      double[] values = new double[2];
+      version = buffer.readDoubles(24, values, 0, 2);
+      Assertions.assertArrayEquals(new double[] {1.0, 2.0}, values);
+      Assertions.assertFalse(buffer.hasNewData(version));
+   }
+
+   @Test
+   public void test()
+   {
+      final long iterations = 100000L;
+      final int length = 300;
+      final ConcurrentSeqLockBuffer buffer = new ConcurrentSeqLockBuffer(length * Double.BYTES);
+
+      // Producer
+      new Thread(new Runnable()
+      {
+         public void run()
+         {
+            double[] state = new double[length];
+            for (long value = 1; value <= iterations; value++)
+            {
+               for (int i = 0; i < length; i++)
+               {
+                  state[i] = value + i;
+               }
+               buffer.writeDoubles(0, state, 0, length);
+            }
+         }
+      }).start();
+
+      // Consumer, every consistent read holds the state of a single write
+      double[] state = new double[length];
+      long lastVersion = 0;
+      double lastValue = 0.0;
+      while (lastValue < iterations)
+      {
+         if (buffer.hasNewData(lastVersion))
+         {
+            lastVersion = buffer.readDoubles(0, state, 0, length);
+            Assertions.assertTrue(state[0] >= lastValue);
+            for (int i = 1; i < length; i++)
+            {
+               Assertions.assertEquals(state[0] + i, state[i], 0.0);
+            }
+            lastValue = state[0];
+         }
+      }
+   }
+}
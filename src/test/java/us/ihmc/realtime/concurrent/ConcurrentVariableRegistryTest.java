@@ -0,0 +1,94 @@
+package us.ihmc.realtime.concurrent;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import us.ihmc.concurrent.dataStructures.ConcurrentVariableRegistry;
+
+public class ConcurrentVariableRegistryTest
+{
+   private enum Mode
+   {
+      IDLE, WALKING, STANDING
+   }
+
+   private enum Color
+   {
+      RED, GREEN, BLUE, YELLOW
+   }
+
+   @Test
+   public void singleThreadTest()
+   {
+      ConcurrentVariableRegistry registry = new ConcurrentVariableRegistry(4);
+      int gain = registry.registerDouble("gain", 1.5);
+      int counter = registry.registerLong("counter", 7);
+      int enabled = registry.registerBoolean("enabled", false);
+      int mode = registry.registerEnum("mode", Mode.class, Mode.IDLE);
+
+      Assertions.assertThrows(IllegalArgumentException.class, () -> registry.registerLong("gain", 0));
+      Assertions.assertEquals(mode, registry.findIndex("mode"));
+      Assertions.assertEquals(-1, registry.findIndex("missing"));
+      Assertions.assertEquals(ConcurrentVariableRegistry.VariableType.BOOLEAN, registry.getType(enabled));
+      Assertions.assertThrows(IllegalArgumentException.class, () -> registry.setLong(gain, 3));
+
+      registry.setDouble(gain, 2.0);
+      registry.setDouble(gain, 2.5);
+      registry.setBoolean(enabled, true);
+      registry.setEnum(mode, Mode.WALKING);
+
+      // Values of another enum are rejected, also when their ordinal is out of range of the registered enum
+      Assertions.assertThrows(IllegalArgumentException.class, () -> registry.setEnum(mode, Color.GREEN));
+      Assertions.assertThrows(IllegalArgumentException.class, () -> registry.setEnum(mode, Color.YELLOW));
+
+      // Nothing changes until the pending changes are applied
+      Assertions.assertEquals(1.5, registry.getDouble(gain), 0.0);
+      Assertions.assertEquals(3, registry.applyPendingChanges());
+      Assertions.assertEquals(2.5, registry.getDouble(gain), 0.0);
+      Assertions.assertEquals(7, registry.getLong(counter));
+      Assertions.assertTrue(registry.getBoolean(enabled));
+      Assertions.assertEquals(Mode.WALKING, registry.<Mode> getEnum(mode));
+
+      Assertions.assertTrue(registry.hasChangedAndReset(gain));
+      Assertions.assertFalse(registry.hasChangedAndReset(gain));
+      Assertions.assertFalse(registry.hasChangedAndReset(counter));
+      Assertions.assertEquals(0, registry.applyPendingChanges());
+   }
+
+   @Test
+   public void test() throws InterruptedException
+   {
+      final long iterations = 100000L;
+      final ConcurrentVariableRegistry registry = new ConcurrentVariableRegistry(2);
+      final int position = registry.registerDouble("position", 0.0);
+      final int velocity = registry.registerLong("velocity", 0);
+
+      Thread writer = new Thread(new Runnable()
+      {
+         public void run()
+         {
+            for (long i = 1; i <= iterations; i++)
+            {
+               registry.setDouble(position, i);
+               registry.setLong(velocity, i);
+            }
+         }
+      });
+      writer.start();
+
+      double lastPosition = 0.0;
+      while (lastPosition < iterations)
+      {
+         registry.applyPendingChanges();
+         if (registry.hasChangedAndReset(position))
+         {
+            Assertions.assertTrue(registry.getDouble(position) > lastPosition);
+            lastPosition = registry.getDouble(position);
+         }
+      }
+
+      writer.join();
+      registry.applyPendingChanges();
+      Assertions.assertEquals(iterations, registry.getLong(velocity));
+   }
+}
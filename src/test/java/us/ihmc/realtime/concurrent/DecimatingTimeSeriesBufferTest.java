@@ -0,0 +1,113 @@
+package us.ihmc.realtime.concurrent;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import us.ihmc.concurrent.dataStructures.DecimatingTimeSeriesBuffer;
+
+public class DecimatingTimeSeriesBufferTest
+{
+   @Test
+   public void singleThreadTest()
+   {
+      DecimatingTimeSeriesBuffer buffer = new DecimatingTimeSeriesBuffer(16, 10, 100);
+      Assertions.assertEquals(3, buffer.getNumberOfTiers());
+      Assertions.assertEquals(100, buffer.getDecimationFactor(2));
+      Assertions.assertEquals(-1, buffer.getNewestPosition(0));
+      Assertions.assertThrows(IllegalArgumentException.class, () -> new DecimatingTimeSeriesBuffer(16, 10, 10));
+
+      double[] min = new double[32];
+      double[] max = new double[32];
+      double[] mean = new double[32];
+      Assertions.assertEquals(0, buffer.read(0, 0, min, max, mean));
+
+      for (int i = 0; i < 1005; i++)
+      {
+         buffer.add(i % 2 == 0 ? i : -i);
+      }
+      Assertions.assertEquals(1005, buffer.getSampleCount());
+
+      // Full rate tier
+      Assertions.assertEquals(1004, buffer.getNewestPosition(0));
+      Assertions.assertEquals(990, buffer.getOldestPosition(0));
+      Assertions.assertEquals(-1, buffer.read(0, 989, min, max, mean));
+      Assertions.assertEquals(15, buffer.read(0, 990, min, max, mean));
+      Assertions.assertEquals(990, min[0]);
+      Assertions.assertEquals(-991, max[1]);
+      Assertions.assertEquals(1004, mean[14]);
+
+      // Blocks of 10 samples, the incomplete block is not visible yet
+      Assertions.assertEquals(99, buffer.getNewestPosition(1));
+      Assertions.assertEquals(2, buffer.read(1, 98, min, max, mean));
+      Assertions.assertEquals(-999, min[1]);
+      Assertions.assertEquals(998, max[1]);
+      Assertions.assertEquals(-0.5, mean[1], 1e-12);
+
+      // Blocks of 100 samples
+      Assertions.assertEquals(9, buffer.getNewestPosition(2));
+      Assertions.assertEquals(0, buffer.getOldestPosition(2));
+      Assertions.assertEquals(10, buffer.read(2, 0, min, max, mean));
+      Assertions.assertEquals(-99, min[0]);
+      Assertions.assertEquals(98, max[0]);
+      Assertions.assertEquals(-999, min[9]);
+   }
+
+   @Test
+   public void test() throws InterruptedException
+   {
+      final long iterations = 200000L;
+      final DecimatingTimeSeriesBuffer buffer = new DecimatingTimeSeriesBuffer(64, 10, 100);
+      final Throwable[] failure = new Throwable[1];
+
+      Thread reader = new Thread(new Runnable()
+      {
+         public void run()
+         {
+            try
+            {
+               double[] min = new double[16];
+               double[] max = new double[16];
+               double[] mean = new double[16];
+               while (buffer.getSampleCount() < iterations)
+               {
+                  for (int tier = 0; tier < buffer.getNumberOfTiers(); tier++)
+                  {
+                     long oldest = buffer.getOldestPosition(tier);
+                     if (oldest < 0)
+                     {
+                        continue;
+                     }
+
+                     // Entries can be overwritten before they are read
+                     int count = buffer.read(tier, oldest, min, max, mean);
+                     long factor = buffer.getDecimationFactor(tier);
+                     for (int i = 0; i < count; i++)
+                     {
+                        long firstSample = (oldest + i) * factor;
+                        Assertions.assertEquals(firstSample, min[i]);
+                        Assertions.assertEquals(firstSample + factor - 1, max[i]);
+                        Assertions.assertEquals(firstSample + (factor - 1) / 2.0, mean[i], 1e-9);
+                     }
+                  }
+               }
+            }
+            catch (Throwable e)
+            {
+               failure[0] = e;
+            }
+         }
+      });
+      reader.start();
+
+      for (long i = 0; i < iterations; i++)
+      {
+         buffer.add(i);
+      }
+
+      reader.join();
+      if (failure[0] != null)
+      {
+         Assertions.fail(failure[0]);
+      }
+   }
+}
@@ -0,0 +1,285 @@
+package us.ihmc.realtime.concurrent;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Flow;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import us.ihmc.concurrent.ConcurrentCopier;
+import us.ihmc.concurrent.ConcurrentRingBuffer;
+import us.ihmc.concurrent.flow.CopierPublisher;
+import us.ihmc.concurrent.flow.DrainLoop;
+import us.ihmc.concurrent.flow.DrainPublisher;
+import us.ihmc.concurrent.flow.RingBufferPublisher;
+
+public class FlowPublisherTest
+{
+   private static final long IDLE_NANOS = 100000L;
+
+   @Test
+   public void ringBufferTest() throws InterruptedException
+   {
+      ConcurrentRingBuffer<long[]> buffer = new ConcurrentRingBuffer<>(() -> new long[1], 128);
+      DrainLoop drainLoop = new DrainLoop("DrainLoop", IDLE_NANOS);
+      RingBufferPublisher<long[]> publisher = new RingBufferPublisher<>(buffer, drainLoop, 16);
+
+      RecordingSubscriber unbounded = new RecordingSubscriber(Long.MAX_VALUE);
+      RecordingSubscriber lagging = new RecordingSubscriber(0);
+      publisher.subscribe(unbounded);
+      publisher.subscribe(lagging);
+      Assertions.assertEquals(2, publisher.getNumberOfSubscribers());
+      drainLoop.start();
+
+      // onNext of one subscriber can be observed before the drop of the next is counted, wait for both
+      produce(buffer, 0, 100);
+      await(() -> unbounded.values.size() == 100 && publisher.getDropCount() == 100);
+      for (int i = 0; i < 100; i++)
+      {
+         Assertions.assertEquals(i, unbounded.values.get(i));
+      }
+      Assertions.assertTrue(lagging.values.isEmpty());
+
+      // Demand is honored, entries beyond the demand are dropped
+      lagging.subscription.request(5);
+      produce(buffer, 100, 10);
+      await(() -> unbounded.values.size() == 110 && publisher.getDropCount() == 105);
+      Assertions.assertEquals(5, lagging.values.size());
+      Assertions.assertEquals(100L, lagging.values.get(0));
+
+      publisher.close();
+      await(() -> unbounded.completed && lagging.completed);
+      Assertions.assertEquals(0, publisher.getNumberOfSubscribers());
+      drainLoop.shutdown();
+   }
+
+   @Test
+   public void copierTest() throws InterruptedException
+   {
+      ConcurrentCopier<long[]> copier = new ConcurrentCopier<>(() -> new long[1]);
+      DrainLoop drainLoop = new DrainLoop("DrainLoop", IDLE_NANOS);
+      CopierPublisher<long[]> publisher = new CopierPublisher<>(copier, drainLoop);
+
+      RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+      publisher.subscribe(subscriber);
+
+      // Subscribed last, so it is drained after the copier publisher in every pass
+      ConcurrentRingBuffer<long[]> markers = new ConcurrentRingBuffer<>(() -> new long[1], 4);
+      RingBufferPublisher<long[]> markerPublisher = new RingBufferPublisher<>(markers, drainLoop, 4);
+      RecordingSubscriber markerSubscriber = new RecordingSubscriber(Long.MAX_VALUE);
+      markerPublisher.subscribe(markerSubscriber);
+      drainLoop.start();
+
+      for (long i = 1; i <= 3; i++)
+      {
+         copier.getCopyForWriting()[0] = i;
+         copier.commit();
+         final long expected = i;
+         await(() -> subscriber.values.size() == expected);
+
+         // The second marker is delivered in a later pass than the first, so the copier publisher was polled
+         // again after publishing this commit. Every commit is published once.
+         for (int marker = 0; marker < 2; marker++)
+         {
+            final int markersReceived = markerSubscriber.values.size() + 1;
+            produce(markers, 0, 1);
+            await(() -> markerSubscriber.values.size() == markersReceived);
+         }
+         Assertions.assertEquals(i, subscriber.values.size());
+         Assertions.assertEquals(i, subscriber.values.get((int) i - 1));
+      }
+
+      drainLoop.shutdown();
+      Assertions.assertTrue(subscriber.completed);
+   }
+
+   @Test
+   public void invalidRequestTest() throws InterruptedException
+   {
+      ConcurrentRingBuffer<long[]> buffer = new ConcurrentRingBuffer<>(() -> new long[1], 16);
+      DrainLoop drainLoop = new DrainLoop("DrainLoop", IDLE_NANOS);
+      RingBufferPublisher<long[]> publisher = new RingBufferPublisher<>(buffer, drainLoop, 16);
+
+      RecordingSubscriber subscriber = new RecordingSubscriber(0);
+      publisher.subscribe(subscriber);
+      drainLoop.start();
+
+      subscriber.subscription.request(0);
+      await(() -> subscriber.error != null);
+      Assertions.assertTrue(subscriber.error instanceof IllegalArgumentException);
+      Assertions.assertEquals(0, publisher.getNumberOfSubscribers());
+
+      drainLoop.shutdown();
+      Assertions.assertFalse(subscriber.completed);
+   }
+
+   @Test
+   public void failingSubscriberTest() throws InterruptedException
+   {
+      DrainLoop drainLoop = new DrainLoop("DrainLoop", IDLE_NANOS);
+      CopyOnWriteArrayList<RuntimeException> exceptions = new CopyOnWriteArrayList<>();
+      drainLoop.setExceptionHandler(exceptions::add);
+
+      // A publisher that throws from poll() is stopped and its subscribers receive the exception
+      final RuntimeException failure = new RuntimeException("poll failed");
+      DrainPublisher<long[]> failingPublisher = new DrainPublisher<long[]>(drainLoop)
+      {
+         @Override
+         protected int poll()
+         {
+            throw failure;
+         }
+      };
+      RecordingSubscriber failingSubscriber = new RecordingSubscriber(1)
+      {
+         @Override
+         public void onError(Throwable throwable)
+         {
+            super.onError(throwable);
+            throw new IllegalStateException("Misbehaving subscriber");
+         }
+      };
+      failingPublisher.subscribe(failingSubscriber);
+
+      ConcurrentRingBuffer<long[]> buffer = new ConcurrentRingBuffer<>(() -> new long[1], 16);
+      RingBufferPublisher<long[]> publisher = new RingBufferPublisher<>(buffer, drainLoop, 16);
+      RecordingSubscriber throwingOnComplete = new RecordingSubscriber(Long.MAX_VALUE)
+      {
+         @Override
+         public void onComplete()
+         {
+            super.onComplete();
+            throw new IllegalStateException("Misbehaving subscriber");
+         }
+      };
+      RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+      publisher.subscribe(throwingOnComplete);
+      publisher.subscribe(subscriber);
+      drainLoop.start();
+
+      await(() -> failingSubscriber.error != null);
+      Assertions.assertSame(failure, failingSubscriber.error);
+
+      // Exceptions of the publisher and of subscribers are reported to the handler
+      await(() -> exceptions.size() == 2);
+      Assertions.assertSame(failure, exceptions.get(0));
+      Assertions.assertEquals("Misbehaving subscriber", exceptions.get(1).getMessage());
+
+      // The other publisher on the drain thread keeps running
+      produce(buffer, 0, 10);
+      await(() -> subscriber.values.size() == 10);
+      publisher.close();
+      await(() -> throwingOnComplete.completed && subscriber.completed);
+      await(() -> exceptions.size() == 3);
+
+      // Subscribing after the publisher completed still completes the subscriber
+      RecordingSubscriber late = new RecordingSubscriber(1);
+      publisher.subscribe(late);
+      Assertions.assertTrue(late.completed);
+
+      drainLoop.shutdown();
+   }
+
+   @Test
+   public void noSubscribersTest() throws InterruptedException
+   {
+      ConcurrentRingBuffer<long[]> buffer = new ConcurrentRingBuffer<>(() -> new long[1], 16);
+      DrainLoop drainLoop = new DrainLoop("DrainLoop", IDLE_NANOS);
+      RingBufferPublisher<long[]> publisher = new RingBufferPublisher<>(buffer, drainLoop, 16);
+
+      RecordingSubscriber subscriber = new RecordingSubscriber(Long.MAX_VALUE);
+      publisher.subscribe(subscriber);
+
+      ConcurrentRingBuffer<long[]> markers = new ConcurrentRingBuffer<>(() -> new long[1], 4);
+      RingBufferPublisher<long[]> markerPublisher = new RingBufferPublisher<>(markers, drainLoop, 4);
+      RecordingSubscriber markerSubscriber = new RecordingSubscriber(Long.MAX_VALUE);
+      markerPublisher.subscribe(markerSubscriber);
+      drainLoop.start();
+
+      produce(buffer, 0, 2);
+      await(() -> subscriber.values.size() == 2);
+      subscriber.subscription.cancel();
+      Assertions.assertEquals(0, publisher.getNumberOfSubscribers());
+
+      // Entries committed while nobody is subscribed stay in the buffer, also after several passes
+      produce(buffer, 2, 3);
+      for (int marker = 0; marker < 2; marker++)
+      {
+         final int markersReceived = markerSubscriber.values.size() + 1;
+         produce(markers, 0, 1);
+         await(() -> markerSubscriber.values.size() == markersReceived);
+      }
+      Assertions.assertEquals(3, buffer.getOccupancy());
+      Assertions.assertEquals(0, publisher.getDropCount());
+
+      // A new subscriber receives them
+      RecordingSubscriber late = new RecordingSubscriber(Long.MAX_VALUE);
+      publisher.subscribe(late);
+      await(() -> late.values.size() == 3);
+      Assertions.assertEquals(2L, late.values.get(0));
+
+      drainLoop.shutdown();
+   }
+
+   private static void produce(ConcurrentRingBuffer<long[]> buffer, long start, int count)
+   {
+      for (int i = 0; i < count; i++)
+      {
+         buffer.next()[0] = start + i;
+      }
+      buffer.commit();
+   }
+
+   private static void await(BooleanSupplier condition) throws InterruptedException
+   {
+      long deadline = System.nanoTime() + 10000000000L;
+      while (!condition.getAsBoolean())
+      {
+         Assertions.assertTrue(System.nanoTime() < deadline, "Timed out");
+         Thread.sleep(1);
+      }
+   }
+
+   private static class RecordingSubscriber implements Flow.Subscriber<long[]>
+   {
+      private final long initialRequest;
+      private final CopyOnWriteArrayList<Long> values = new CopyOnWriteArrayList<>();
+      private volatile Flow.Subscription subscription;
+      private volatile boolean completed = false;
+      private volatile Throwable error;
+
+      private RecordingSubscriber(long initialRequest)
+      {
+         this.initialRequest = initialRequest;
+      }
+
+      @Override
+      public void onSubscribe(Flow.Subscription subscription)
+      {
+         this.subscription = subscription;
+         if (initialRequest > 0)
+         {
+            subscription.request(initialRequest);
+         }
+      }
+
+      @Override
+      public void onNext(long[] item)
+      {
+         values.add(item[0]);
+      }
+
+      @Override
+      public void onError(Throwable throwable)
+      {
+         error = throwable;
+      }
+
+      @Override
+      public void onComplete()
+      {
+         completed = true;
+      }
+   }
+}
@@ -0,0 +1,227 @@
+package us.ihmc.realtime.concurrent;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import us.ihmc.concurrent.InstrumentedConcurrentCopier;
+import us.ihmc.concurrent.InstrumentedConcurrentRingBuffer;
+import us.ihmc.concurrent.dataStructures.LatencyHistogram;
+
+public class LatencyInstrumentationTest
+{
+   @Test
+   public void testHistogram()
+   {
+      LatencyHistogram histogram = new LatencyHistogram();
+      histogram.record(0);
+      histogram.record(1);
+      histogram.record(1000);
+      histogram.record(1023);
+      histogram.record(1024);
+
+      Assertions.assertEquals(5, histogram.getCount());
+      Assertions.assertEquals(1024, histogram.getMax());
+      Assertions.assertEquals(1, histogram.getBucketCount(0));
+      Assertions.assertEquals(1, histogram.getBucketCount(1));
+      Assertions.assertEquals(2, histogram.getBucketCount(LatencyHistogram.getBucket(1000)));
+      Assertions.assertEquals(992, LatencyHistogram.getBucketLowerBound(LatencyHistogram.getBucket(1000)));
+      Assertions.assertEquals(1024, LatencyHistogram.getBucketUpperBound(LatencyHistogram.getBucket(1000)));
+      Assertions.assertEquals(1, histogram.getBucketCount(LatencyHistogram.getBucket(1024)));
+
+      LatencyHistogram snapshot = new LatencyHistogram();
+      histogram.getSnapshot(snapshot);
+      histogram.reset();
+      Assertions.assertEquals(0, histogram.getCount());
+      Assertions.assertEquals(5, snapshot.getCount());
+      Assertions.assertEquals(2, snapshot.getBucketCount(LatencyHistogram.getBucket(1023)));
+   }
+
+   @Test
+   public void testBuckets()
+   {
+      for (int i = 0; i < LatencyHistogram.SUB_BUCKET_COUNT; i++)
+      {
+         Assertions.assertEquals(i, LatencyHistogram.getBucket(i));
+      }
+      Assertions.assertEquals(0, LatencyHistogram.getBucket(-5));
+      Assertions.assertEquals(LatencyHistogram.NUMBER_OF_BUCKETS - 1, LatencyHistogram.getBucket(Long.MAX_VALUE));
+
+      // Buckets are contiguous and no wider than 1/16 of their lower bound
+      for (int bucket = 1; bucket < LatencyHistogram.NUMBER_OF_BUCKETS - 1; bucket++)
+      {
+         long lower = LatencyHistogram.getBucketLowerBound(bucket);
+         long upper = LatencyHistogram.getBucketUpperBound(bucket);
+         Assertions.assertEquals(LatencyHistogram.getBucketUpperBound(bucket - 1), lower);
+         Assertions.assertEquals(bucket, LatencyHistogram.getBucket(lower));
+         Assertions.assertEquals(bucket, LatencyHistogram.getBucket(upper - 1));
+         Assertions.assertTrue(upper - lower <= Math.max(1, lower / LatencyHistogram.SUB_BUCKET_COUNT));
+      }
+   }
+
+   @Test
+   public void testPercentiles()
+   {
+      LatencyHistogram histogram = new LatencyHistogram();
+      for (long i = 1; i <= 10000; i++)
+      {
+         histogram.record(i * 1000);
+      }
+
+      LatencyHistogram snapshot = new LatencyHistogram();
+      histogram.getSnapshot(snapshot);
+      Assertions.assertEquals(10000, snapshot.getCount());
+      Assertions.assertEquals(10000000, snapshot.getMax());
+      Assertions.assertEquals(10000000, snapshot.getPercentile(100.0));
+      Assertions.assertEquals(1000, snapshot.getPercentile(0.0), 1000 / 16);
+      Assertions.assertEquals(5000000, snapshot.getPercentile(50.0), 5000000 / 16);
+      Assertions.assertEquals(9990000, snapshot.getPercentile(99.9), 9990000 / 16);
+      Assertions.assertEquals(0, new LatencyHistogram().getPercentile(99.0));
+
+      // Intervals are measured against the previous snapshot
+      LatencyHistogram baseline = new LatencyHistogram();
+      LatencyHistogram interval = new LatencyHistogram();
+      histogram.getIntervalSnapshot(baseline, interval);
+      Assertions.assertEquals(10000, interval.getCount());
+      Assertions.assertEquals(10000000, interval.getMax());
+
+      histogram.record(100);
+      histogram.record(200);
+      histogram.getIntervalSnapshot(baseline, interval);
+      Assertions.assertEquals(2, interval.getCount());
+      Assertions.assertEquals(150.0, interval.getMean(), 1e-9);
+      Assertions.assertEquals(200, interval.getMax(), 200 / 16);
+      Assertions.assertEquals(10002, baseline.getCount());
+
+      histogram.getIntervalSnapshot(baseline, interval);
+      Assertions.assertEquals(0, interval.getCount());
+      Assertions.assertEquals(0, interval.getMax());
+   }
+
+   @Test
+   public void testConcurrentSnapshot() throws InterruptedException
+   {
+      final long iterations = 100000L;
+      final LatencyHistogram histogram = new LatencyHistogram();
+
+      Thread writer = new Thread(new Runnable()
+      {
+         public void run()
+         {
+            for (long i = 0; i < iterations; i++)
+            {
+               histogram.record(i % 5000);
+            }
+         }
+      });
+      writer.start();
+
+      // Consistent snapshots: the total count matches the sum of the buckets
+      LatencyHistogram snapshot = new LatencyHistogram();
+      do
+      {
+         if (histogram.getSnapshot(snapshot))
+         {
+            Assertions.assertEquals(snapshot.getCount(), getBucketSum(snapshot));
+         }
+      }
+      while (snapshot.getCount() < iterations);
+
+      writer.join();
+      Assertions.assertTrue(histogram.getSnapshot(snapshot));
+      Assertions.assertEquals(iterations, getBucketSum(snapshot));
+   }
+
+   @Test
+   public void testSnapshotWhileRecordingContinuously() throws InterruptedException
+   {
+      final LatencyHistogram histogram = new LatencyHistogram();
+      final AtomicBoolean running = new AtomicBoolean(true);
+
+      Thread writer = new Thread(new Runnable()
+      {
+         public void run()
+         {
+            long i = 0;
+            while (running.get())
+            {
+               histogram.record(i++ % 5000);
+            }
+         }
+      });
+      writer.start();
+
+      // Snapshots always return, also when every attempt overlaps with a record
+      LatencyHistogram snapshot = new LatencyHistogram();
+      long previousCount = 0;
+      for (int i = 0; i < 1000; i++)
+      {
+         if (histogram.getSnapshot(snapshot))
+         {
+            Assertions.assertEquals(snapshot.getCount(), getBucketSum(snapshot));
+         }
+         Assertions.assertTrue(snapshot.getCount() >= previousCount);
+         previousCount = snapshot.getCount();
+      }
+
+      running.set(false);
+      writer.join();
+   }
+
+   private static long getBucketSum(LatencyHistogram histogram)
+   {
+      long sum = 0;
+      for (int i = 0; i < LatencyHistogram.NUMBER_OF_BUCKETS; i++)
+      {
+         sum += histogram.getBucketCount(i);
+      }
+      return sum;
+   }
+
+   @Test
+   public void testRingBuffer() throws InterruptedException
+   {
+      InstrumentedConcurrentRingBuffer<long[]> buffer = new InstrumentedConcurrentRingBuffer<>(() -> new long[1], 8);
+      LatencyHistogram snapshot = new LatencyHistogram();
+
+      buffer.next()[0] = 1;
+      buffer.next()[0] = 2;
+      buffer.commit();
+      Thread.sleep(2);
+      buffer.next()[0] = 3;
+      buffer.commit();
+
+      Assertions.assertTrue(buffer.poll());
+      Assertions.assertEquals(1, buffer.read()[0]);
+      buffer.flush();
+      Assertions.assertEquals(2, buffer.drain(entry -> Assertions.assertTrue(entry[0] > 1), 8));
+
+      buffer.getLatencySnapshot(snapshot);
+      Assertions.assertEquals(3, snapshot.getCount());
+      Assertions.assertTrue(snapshot.getMax() >= 2000000);
+   }
+
+   @Test
+   public void testCopier()
+   {
+      InstrumentedConcurrentCopier<long[]> copier = new InstrumentedConcurrentCopier<>(() -> new long[1]);
+      LatencyHistogram snapshot = new LatencyHistogram();
+
+      Assertions.assertNull(copier.getCopyForReading());
+      copier.getCopyForWriting()[0] = 1;
+      copier.commit();
+
+      // Reading the same commit again does not add a sample
+      Assertions.assertEquals(1, copier.getCopyForReading()[0]);
+      Assertions.assertEquals(1, copier.getCopyForReading()[0]);
+      copier.getLatencySnapshot(snapshot);
+      Assertions.assertEquals(1, snapshot.getCount());
+
+      copier.getCopyForWriting()[0] = 2;
+      copier.commit();
+      Assertions.assertEquals(2, copier.getCopyForReading()[0]);
+      copier.getLatencySnapshot(snapshot);
+      Assertions.assertEquals(2, snapshot.getCount());
+   }
+}
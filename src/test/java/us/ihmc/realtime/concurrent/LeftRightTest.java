@@ -0,0 +1,95 @@
+package us.ihmc.realtime.concurrent;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import us.ihmc.concurrent.LeftRight;
+
+public class LeftRightTest
+{
+   @Test
+   public void singleThreadTest()
+   {
+      LeftRight<long[]> leftRight = new LeftRight<>(() -> new long[4], 1);
+      LeftRight<long[]>.Reader reader = leftRight.createReader();
+      Assertions.assertThrows(IllegalStateException.class, () -> leftRight.createReader());
+      Assertions.assertThrows(IllegalStateException.class, () -> reader.endRead());
+
+      long[] before = reader.startRead();
+      Assertions.assertThrows(IllegalStateException.class, () -> reader.startRead());
+      reader.endRead();
+
+      leftRight.modify(table -> table[2] += 5);
+      leftRight.modify(table -> table[2] += 5);
+
+      long[] after = reader.startRead();
+      Assertions.assertEquals(10, after[2]);
+      reader.endRead();
+      Assertions.assertEquals(10, before[2]);
+   }
+
+   @Test
+   public void test() throws InterruptedException
+   {
+      final long iterations = 2000L;
+      final int numberOfReaders = 2;
+      final LeftRight<long[]> leftRight = new LeftRight<>(() -> new long[1024], numberOfReaders);
+      final Throwable[] failures = new Throwable[numberOfReaders];
+
+      // Readers, every table they see holds the same value in all entries
+      Thread[] readers = new Thread[numberOfReaders];
+      for (int r = 0; r < numberOfReaders; r++)
+      {
+         final int readerIndex = r;
+         final LeftRight<long[]>.Reader reader = leftRight.createReader();
+         readers[r] = new Thread(new Runnable()
+         {
+            public void run()
+            {
+               try
+               {
+                  long lastValue = 0;
+                  while (lastValue < iterations)
+                  {
+                     long[] table = reader.startRead();
+                     long value = table[0];
+                     for (int i = 1; i < table.length; i++)
+                     {
+                        Assertions.assertEquals(value, table[i]);
+                     }
+                     reader.endRead();
+
+                     Assertions.assertTrue(value >= lastValue);
+                     lastValue = value;
+                  }
+               }
+               catch (Throwable e)
+               {
+                  failures[readerIndex] = e;
+               }
+            }
+         });
+         readers[r].start();
+      }
+
+      for (long i = 0; i < iterations; i++)
+      {
+         leftRight.modify(table ->
+         {
+            for (int j = 0; j < table.length; j++)
+            {
+               table[j]++;
+            }
+         });
+      }
+
+      for (int r = 0; r < numberOfReaders; r++)
+      {
+         readers[r].join();
+         if (failures[r] != null)
+         {
+            Assertions.fail(failures[r]);
+         }
+      }
+   }
+}
@@ -0,0 +1,116 @@
+package us.ihmc.realtime.concurrent;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import us.ihmc.concurrent.OverwritingRingBuffer;
+import us.ihmc.concurrent.runtime.barrierScheduler.implicitContext.tasks.InPlaceCopyable;
+
+public class OverwritingRingBufferTest
+{
+   @Test
+   public void singleThreadTest()
+   {
+      OverwritingRingBuffer<Entry> buffer = new OverwritingRingBuffer<>(Entry::new, 8);
+      Entry entry = new Entry();
+      Assertions.assertFalse(buffer.read(entry));
+
+      Entry[] snapshot = new Entry[5];
+      for (int i = 0; i < snapshot.length; i++)
+      {
+         snapshot[i] = new Entry();
+      }
+      Assertions.assertEquals(0, buffer.snapshot(snapshot));
+
+      for (long i = 0; i < 20; i++)
+      {
+         buffer.next().set(i);
+         buffer.commit();
+      }
+
+      Assertions.assertEquals(5, buffer.snapshot(snapshot));
+      for (int i = 0; i < snapshot.length; i++)
+      {
+         snapshot[i].check();
+         Assertions.assertEquals(15 + i, snapshot[i].value);
+      }
+
+      // The oldest 12 entries have been overwritten
+      for (long i = 12; i < 20; i++)
+      {
+         Assertions.assertTrue(buffer.read(entry));
+         entry.check();
+         Assertions.assertEquals(i, entry.value);
+      }
+      Assertions.assertFalse(buffer.read(entry));
+      Assertions.assertEquals(12, buffer.getLostCount());
+   }
+
+   @Test
+   public void test()
+   {
+      final long iterations = 1000000L;
+      final OverwritingRingBuffer<Entry> buffer = new OverwritingRingBuffer<>(Entry::new, 64);
+
+      // Producer, never waits for the consumer
+      new Thread(new Runnable()
+      {
+         public void run()
+         {
+            for (long value = 0; value < iterations; value++)
+            {
+               buffer.next().set(value);
+               buffer.commit();
+            }
+         }
+      }).start();
+
+      Entry entry = new Entry();
+      long read = 0;
+      long lastValue = -1;
+      while (lastValue < iterations - 1)
+      {
+         if (buffer.read(entry))
+         {
+            entry.check();
+            Assertions.assertTrue(entry.value > lastValue);
+            lastValue = entry.value;
+            ++read;
+         }
+      }
+
+      Assertions.assertEquals(iterations, read + buffer.getLostCount());
+   }
+
+   private static class Entry implements InPlaceCopyable<Entry>
+   {
+      private static final long serialVersionUID = 1L;
+
+      private long value;
+      private final long[] values = new long[16];
+
+      public void set(long value)
+      {
+         this.value = value;
+         for (int i = 0; i < values.length; i++)
+         {
+            values[i] = value + i;
+         }
+      }
+
+      public void check()
+      {
+         for (int i = 0; i < values.length; i++)
+         {
+            Assertions.assertEquals(value + i, values[i]);
+         }
+      }
+
+      @Override
+      public void copyFrom(Entry src)
+      {
+         value = src.value;
+         System.arraycopy(src.values, 0, values, 0, values.length);
+      }
+   }
+}
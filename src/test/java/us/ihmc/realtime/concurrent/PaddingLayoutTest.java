@@ -0,0 +1,86 @@
+package us.ihmc.realtime.concurrent;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jol.info.ClassLayout;
+import org.openjdk.jol.info.FieldLayout;
+
+import us.ihmc.concurrent.ConcurrentCopier;
+import us.ihmc.concurrent.ConcurrentRingBuffer;
+import us.ihmc.util.PaddedVolatileLong;
+
+/**
+ * Checks with JOL that the hot fields of the concurrent data structures are on their own cache line,
+ * given the field layout of the running JVM.
+ */
+public class PaddingLayoutTest
+{
+   private static final int CACHE_LINE_SIZE = 64;
+
+   @Test
+   public void testPaddedVolatileLong()
+   {
+      assertIsolated(PaddedVolatileLong.class, "value");
+   }
+
+   @Test
+   public void testConcurrentRingBuffer()
+   {
+      assertIsolated(ConcurrentRingBuffer.class, "writePosition", "cachedMaxWritePosition", "commitCount", "producerFullCount");
+      assertIsolated(ConcurrentRingBuffer.class, "readLimit", "readPosition", "flushedPosition", "emptyPollCount", "highWaterMark");
+   }
+
+   @Test
+   public void testConcurrentCopier()
+   {
+      assertIsolated(ConcurrentCopier.class, "currentlyBeingWritten", "commitCount");
+      assertIsolated(ConcurrentCopier.class, "state");
+      assertIsolated(ConcurrentCopier.class, "readCount", "staleReadCount");
+   }
+
+   /**
+    * Asserts that at least a cache line separates the group of fields from all other non-padding
+    * fields and from the start and end of the object.
+    */
+   private static void assertIsolated(Class<?> clazz, String... group)
+   {
+      ClassLayout layout = ClassLayout.parseClass(clazz);
+      List<String> groupNames = Arrays.asList(group);
+
+      long groupStart = Long.MAX_VALUE;
+      long groupEnd = Long.MIN_VALUE;
+      for (FieldLayout field : layout.fields())
+      {
+         if (groupNames.contains(field.name()))
+         {
+            groupStart = Math.min(groupStart, field.offset());
+            groupEnd = Math.max(groupEnd, field.offset() + field.size());
+         }
+      }
+      Assertions.assertNotEquals(Long.MAX_VALUE, groupStart, "Fields " + groupNames + " not found in " + clazz.getSimpleName());
+
+      String description = clazz.getSimpleName() + " " + groupNames + "\n" + layout.toPrintable();
+      Assertions.assertTrue(groupStart >= CACHE_LINE_SIZE, "Not enough padding before " + description);
+      Assertions.assertTrue(layout.instanceSize() - groupEnd >= CACHE_LINE_SIZE, "Not enough padding after " + description);
+
+      for (FieldLayout field : layout.fields())
+      {
+         if (groupNames.contains(field.name()) || isPadding(field))
+         {
+            continue;
+         }
+
+         boolean before = field.offset() + field.size() + CACHE_LINE_SIZE <= groupStart;
+         boolean after = field.offset() >= groupEnd + CACHE_LINE_SIZE;
+         Assertions.assertTrue(before || after, field.name() + " shares a cache line with " + description);
+      }
+   }
+
+   private static boolean isPadding(FieldLayout field)
+   {
+      return field.name().matches("p\\d\\d");
+   }
+}
@@ -0,0 +1,116 @@
+package us.ihmc.realtime.concurrent;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import us.ihmc.concurrent.DoubleRingBuffer;
+import us.ihmc.concurrent.DoubleTupleRingBuffer;
+import us.ihmc.concurrent.LongRingBuffer;
+
+public class PrimitiveRingBufferTest
+{
+   @Test
+   public void singleThreadTest()
+   {
+      DoubleRingBuffer buffer = new DoubleRingBuffer(5);
+      Assertions.assertEquals(8, buffer.getCapacity());
+      Assertions.assertTrue(buffer.isEmpty());
+      Assertions.assertTrue(Double.isNaN(buffer.poll(Double.NaN)));
+      Assertions.assertEquals(-1.0, buffer.peek(-1.0), 0.0);
+
+      double[] values = {0.0, 1.0, 2.0, 3.0, 4.0, 5.0, 6.0, 7.0, 8.0, 9.0};
+      Assertions.assertEquals(6, buffer.offer(values, 0, 6));
+      Assertions.assertEquals(6, buffer.size());
+      Assertions.assertEquals(0.0, buffer.poll(Double.NaN), 0.0);
+      Assertions.assertEquals(1.0, buffer.peek(Double.NaN), 0.0);
+
+      // Wraps around the end of the array
+      Assertions.assertEquals(3, buffer.offer(values, 6, 4));
+      Assertions.assertFalse(buffer.offer(9.0));
+
+      double[] destination = new double[10];
+      Assertions.assertEquals(8, buffer.poll(destination, 1, 10));
+      for (int i = 1; i < 9; i++)
+      {
+         Assertions.assertEquals(i, destination[i], 0.0);
+      }
+      Assertions.assertTrue(buffer.isEmpty());
+   }
+
+   @Test
+   public void tupleTest()
+   {
+      DoubleTupleRingBuffer buffer = new DoubleTupleRingBuffer(3, 4);
+      double[] tuples = new double[3 * 6];
+      for (int i = 0; i < tuples.length; i++)
+      {
+         tuples[i] = i;
+      }
+
+      Assertions.assertEquals(3, buffer.offer(tuples, 0, 3));
+      double[] tuple = new double[3];
+      Assertions.assertTrue(buffer.poll(tuple, 0));
+      Assertions.assertArrayEquals(new double[] {0.0, 1.0, 2.0}, tuple);
+
+      Assertions.assertEquals(2, buffer.offer(tuples, 9, 3));
+      Assertions.assertFalse(buffer.offer(tuples, 15));
+
+      double[] destination = new double[3 * 4];
+      Assertions.assertEquals(4, buffer.poll(destination, 0, 4));
+      for (int i = 0; i < destination.length; i++)
+      {
+         Assertions.assertEquals(i + 3, destination[i], 0.0);
+      }
+      Assertions.assertFalse(buffer.poll(tuple, 0));
+   }
+
+   @Test
+   public void test()
+   {
+      final long iterations = 1000000L;
+      final LongRingBuffer buffer = new LongRingBuffer(1024);
+
+      // Producer
+      new Thread(new Runnable()
+      {
+         public void run()
+         {
+            long[] batch = new long[16];
+            long value = 0;
+            while (value < iterations)
+            {
+               if (value % 2 == 0)
+               {
+                  while (!buffer.offer(value)); // Spinlock
+                  ++value;
+               }
+               else
+               {
+                  int length = (int) Math.min(batch.length, iterations - value);
+                  for (int i = 0; i < length; i++)
+                  {
+                     batch[i] = value + i;
+                  }
+                  value += buffer.offer(batch, 0, length);
+               }
+            }
+         }
+      }).start();
+
+      long[] destination = new long[100];
+      long expected = 0;
+      while (expected < iterations)
+      {
+         if (!buffer.isEmpty())
+         {
+            Assertions.assertEquals(expected++, buffer.poll(-1));
+
+            int count = buffer.poll(destination, 0, destination.length);
+            for (int i = 0; i < count; i++)
+            {
+               Assertions.assertEquals(expected++, destination[i]);
+            }
+         }
+      }
+   }
+}
@@ -0,0 +1,189 @@
+package us.ihmc.realtime.concurrent;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import us.ihmc.concurrent.SharedMemoryRingBuffer;
+
+public class SharedMemoryRingBufferTest
+{
+   @Test
+   public void testReattach() throws IOException
+   {
+      Path path = Files.createTempFile("SharedMemoryRingBufferTest", ".buffer");
+      try
+      {
+         SharedMemoryRingBuffer producer = SharedMemoryRingBuffer.create(path, 6, 12);
+         SharedMemoryRingBuffer consumer = SharedMemoryRingBuffer.attach(path);
+
+         Assertions.assertEquals(8, consumer.getCapacity());
+         Assertions.assertEquals(12, consumer.getSlotSize());
+         Assertions.assertFalse(consumer.poll());
+
+         for (long i = 0; i < 8; i++)
+         {
+            producer.next().putLong(0, i);
+         }
+         Assertions.assertNull(producer.next());
+         producer.commit();
+
+         Assertions.assertTrue(consumer.poll());
+         Assertions.assertEquals(0, consumer.read().getLong(0));
+         Assertions.assertEquals(1, consumer.read().getLong(0));
+         consumer.flush();
+         Assertions.assertEquals(2, consumer.read().getLong(0));
+
+         // Reattaching continues after the last flushed entry, unflushed reads are repeated
+         consumer = SharedMemoryRingBuffer.attach(path);
+         Assertions.assertTrue(consumer.poll());
+         Assertions.assertEquals(2, consumer.peek().getLong(0));
+
+         // A restarted producer loses uncommitted entries
+         producer.next().putLong(0, 100);
+         producer = SharedMemoryRingBuffer.createOrAttach(path, 8, 12);
+         producer.next().putLong(0, 8);
+         producer.commit();
+
+         long expected = 2;
+         Assertions.assertTrue(consumer.poll());
+         ByteBuffer slot;
+         while ((slot = consumer.read()) != null)
+         {
+            Assertions.assertEquals(expected++, slot.getLong(0));
+         }
+         consumer.flush();
+         Assertions.assertEquals(9, expected);
+      }
+      finally
+      {
+         Files.deleteIfExists(path);
+      }
+   }
+
+   @Test
+   public void testIncompatibleFile() throws IOException
+   {
+      Path path = Files.createTempFile("SharedMemoryRingBufferTest", ".buffer");
+      try
+      {
+         Files.write(path, new byte[1024]);
+         Assertions.assertThrows(IOException.class, () -> SharedMemoryRingBuffer.attach(path));
+
+         SharedMemoryRingBuffer buffer = SharedMemoryRingBuffer.createOrAttach(path, 16, 8);
+         Assertions.assertEquals(16, buffer.getCapacity());
+      }
+      finally
+      {
+         Files.deleteIfExists(path);
+      }
+   }
+
+   @Test
+   public void testReplaceInUse() throws IOException
+   {
+      Path path = Files.createTempFile("SharedMemoryRingBufferTest", ".buffer");
+      try
+      {
+         Assertions.assertThrows(RuntimeException.class, () -> SharedMemoryRingBuffer.create(path, 0, 8));
+
+         SharedMemoryRingBuffer producer = SharedMemoryRingBuffer.create(path, 8, 8);
+         SharedMemoryRingBuffer consumer = SharedMemoryRingBuffer.attach(path);
+
+         // An initialized buffer with a different layout is not replaced
+         Assertions.assertThrows(IOException.class, () -> SharedMemoryRingBuffer.createOrAttach(path, 16, 8));
+         Assertions.assertEquals(8, SharedMemoryRingBuffer.attach(path).getCapacity());
+
+         // Replacing the file keeps the mapping of the old buffer valid
+         SharedMemoryRingBuffer replacement = SharedMemoryRingBuffer.create(path, 16, 8);
+         Assertions.assertEquals(16, SharedMemoryRingBuffer.attach(path).getCapacity());
+         Assertions.assertFalse(replacement.poll());
+
+         producer.next().putLong(0, 42);
+         producer.commit();
+         Assertions.assertTrue(consumer.poll());
+         Assertions.assertEquals(42, consumer.read().getLong(0));
+      }
+      finally
+      {
+         Files.deleteIfExists(path);
+      }
+   }
+
+   @Test
+   public void testInvalidHeader() throws IOException
+   {
+      Path path = Files.createTempFile("SharedMemoryRingBufferTest", ".buffer");
+      try
+      {
+         SharedMemoryRingBuffer.create(path, 8, 8);
+
+         // Capacity in the header is not a power of two
+         try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE))
+         {
+            ByteBuffer capacity = ByteBuffer.allocate(4).order(ByteOrder.nativeOrder()).putInt(0, 6);
+            channel.write(capacity, 8);
+         }
+         Assertions.assertThrows(IOException.class, () -> SharedMemoryRingBuffer.attach(path));
+      }
+      finally
+      {
+         Files.deleteIfExists(path);
+      }
+   }
+
+   @Test
+   public void test() throws IOException
+   {
+      final long iterations = 100000L;
+      Path path = Files.createTempFile("SharedMemoryRingBufferTest", ".buffer");
+      try
+      {
+         final SharedMemoryRingBuffer producer = SharedMemoryRingBuffer.create(path, 1024, 16);
+         SharedMemoryRingBuffer consumer = SharedMemoryRingBuffer.attach(path);
+
+         // Producer
+         new Thread(new Runnable()
+         {
+            public void run()
+            {
+               for (long value = 0; value < iterations; value++)
+               {
+                  ByteBuffer next;
+                  while ((next = producer.next()) == null); // Spinlock
+                  next.putLong(0, value);
+                  next.putLong(8, -value);
+                  producer.commit();
+               }
+            }
+         }).start();
+
+         long expected = 0;
+         while (expected < iterations)
+         {
+            if (consumer.poll())
+            {
+               ByteBuffer value;
+               while ((value = consumer.read()) != null)
+               {
+                  Assertions.assertEquals(expected, value.getLong(0));
+                  Assertions.assertEquals(-expected, value.getLong(8));
+                  ++expected;
+               }
+               consumer.flush();
+            }
+         }
+      }
+      finally
+      {
+         Files.deleteIfExists(path);
+      }
+   }
+}
@@ -0,0 +1,114 @@
+package us.ihmc.realtime.concurrent;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import us.ihmc.util.StripedCounter;
+import us.ihmc.util.StripedCounterFamily;
+
+public class StripedCounterTest
+{
+   @Test
+   public void singleThreadTest()
+   {
+      StripedCounter counter = new StripedCounter(2);
+      Assertions.assertEquals(0, counter.sum());
+
+      StripedCounter.Cell first = counter.createCell();
+      StripedCounter.Cell second = counter.createCell();
+      Assertions.assertThrows(IllegalStateException.class, counter::createCell);
+      Assertions.assertEquals(2, counter.getNumberOfCells());
+
+      first.increment();
+      first.increment();
+      second.add(40);
+      Assertions.assertEquals(2, first.get());
+      Assertions.assertEquals(42, counter.sum());
+   }
+
+   @Test
+   public void test() throws InterruptedException
+   {
+      final int threads = 4;
+      final long iterations = 100000L;
+      final StripedCounter counter = new StripedCounter(threads);
+
+      Thread[] incrementers = new Thread[threads];
+      for (int t = 0; t < threads; t++)
+      {
+         final StripedCounter.Cell cell = counter.createCell();
+         incrementers[t] = new Thread(new Runnable()
+         {
+            public void run()
+            {
+               for (long i = 0; i < iterations; i++)
+               {
+                  cell.increment();
+               }
+            }
+         });
+         incrementers[t].start();
+      }
+
+      // The sum never decreases while the cells are incremented
+      long previous = 0;
+      while (previous < threads * iterations)
+      {
+         long sum = counter.sum();
+         Assertions.assertTrue(sum >= previous);
+         previous = sum;
+      }
+
+      for (Thread incrementer : incrementers)
+      {
+         incrementer.join();
+      }
+      Assertions.assertEquals(threads * iterations, counter.sum());
+   }
+
+   @Test
+   public void familyTest() throws InterruptedException
+   {
+      final int threads = 4;
+      final long iterations = 100000L;
+      final StripedCounterFamily family = new StripedCounterFamily(threads, "messages", "overruns", "faults");
+      final int messages = family.findCounter("messages");
+      final int overruns = family.findCounter("overruns");
+      final int faults = family.findCounter("faults");
+      Assertions.assertEquals(-1, family.findCounter("missing"));
+      Assertions.assertEquals(3, family.getNumberOfCounters());
+
+      // One registration per thread gives the cells of all counters
+      Thread[] incrementers = new Thread[threads];
+      for (int t = 0; t < threads; t++)
+      {
+         final StripedCounterFamily.Cells cells = family.registerThread();
+         incrementers[t] = new Thread(new Runnable()
+         {
+            public void run()
+            {
+               for (long i = 0; i < iterations; i++)
+               {
+                  cells.increment(messages);
+                  if (i % 10 == 0)
+                  {
+                     cells.increment(overruns);
+                  }
+               }
+               cells.add(faults, 2);
+            }
+         });
+         incrementers[t].start();
+      }
+      Assertions.assertThrows(IllegalStateException.class, family::registerThread);
+
+      for (Thread incrementer : incrementers)
+      {
+         incrementer.join();
+      }
+      Assertions.assertEquals(threads * iterations, family.sum(messages));
+      Assertions.assertEquals(threads * iterations / 10, family.sum(overruns));
+      Assertions.assertEquals(2 * threads, family.sum(faults));
+      Assertions.assertEquals("messages: 400000, overruns: 40000, faults: 8", family.toString());
+   }
+}
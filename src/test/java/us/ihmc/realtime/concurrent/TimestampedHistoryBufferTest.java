@@ -0,0 +1,134 @@
+package us.ihmc.realtime.concurrent;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import us.ihmc.concurrent.TimestampedHistoryBuffer;
+import us.ihmc.concurrent.runtime.barrierScheduler.implicitContext.tasks.InPlaceCopyable;
+import us.ihmc.realtime.MonotonicTime;
+
+public class TimestampedHistoryBufferTest
+{
+   private static final TimestampedHistoryBuffer.Interpolator<Sample> interpolator = new TimestampedHistoryBuffer.Interpolator<Sample>()
+   {
+      @Override
+      public void interpolate(Sample before, Sample after, double alpha, Sample result)
+      {
+         result.position = before.position + alpha * (after.position - before.position);
+         result.velocity = before.velocity + alpha * (after.velocity - before.velocity);
+      }
+   };
+
+   @Test
+   public void singleThreadTest()
+   {
+      TimestampedHistoryBuffer<Sample> history = new TimestampedHistoryBuffer<>(Sample::new, 8);
+      Sample result = new Sample();
+      Assertions.assertFalse(history.get(0, result, interpolator));
+      Assertions.assertEquals(Long.MIN_VALUE, history.getNewest(result));
+
+      for (long i = 0; i < 20; i++)
+      {
+         history.next(new MonotonicTime(i, 0)).set(i);
+         history.commit();
+      }
+      Assertions.assertThrows(IllegalArgumentException.class, () -> history.next(new MonotonicTime(19, 0)));
+
+      // The last 7 entries can be looked up
+      Assertions.assertEquals(13 * MonotonicTime.NANOSECONDS_PER_SECOND, history.getOldestTimestamp());
+      Assertions.assertEquals(19 * MonotonicTime.NANOSECONDS_PER_SECOND, history.getNewestTimestamp());
+      Assertions.assertFalse(history.get(new MonotonicTime(12, 999999999), result, interpolator));
+      Assertions.assertFalse(history.get(new MonotonicTime(19, 1), result, interpolator));
+
+      Assertions.assertTrue(history.get(new MonotonicTime(13, 0), result, interpolator));
+      Assertions.assertEquals(13.0, result.position, 1e-12);
+      Assertions.assertTrue(history.get(new MonotonicTime(19, 0), result, interpolator));
+      Assertions.assertEquals(19.0, result.position, 1e-12);
+      Assertions.assertTrue(history.get(new MonotonicTime(15, 250000000), result, interpolator));
+      Assertions.assertEquals(15.25, result.position, 1e-12);
+      result.check();
+   }
+
+   @Test
+   public void test() throws InterruptedException
+   {
+      final long iterations = 200000L;
+      final long period = 1000L;
+      final TimestampedHistoryBuffer<Sample> history = new TimestampedHistoryBuffer<>(Sample::new, 64);
+      final Throwable[] failure = new Throwable[1];
+
+      Thread reader = new Thread(new Runnable()
+      {
+         public void run()
+         {
+            try
+            {
+               Random random = new Random(1283L);
+               Sample result = new Sample();
+               long newest = Long.MIN_VALUE;
+               while (newest < (iterations - 1) * period)
+               {
+                  newest = history.getNewestTimestamp();
+                  if (newest == Long.MIN_VALUE)
+                  {
+                     continue;
+                  }
+
+                  // Look up a time in the recent history, it may be overwritten by the time it is looked up
+                  long timestamp = Math.max(0, newest - random.nextInt((int) (40 * period)));
+                  if (history.get(timestamp, result, interpolator))
+                  {
+                     Assertions.assertEquals((double) timestamp / period, result.position, 1e-9);
+                     result.check();
+                  }
+               }
+            }
+            catch (Throwable e)
+            {
+               failure[0] = e;
+            }
+         }
+      });
+      reader.start();
+
+      for (long i = 0; i < iterations; i++)
+      {
+         history.next(i * period).set(i);
+         history.commit();
+      }
+
+      reader.join();
+      if (failure[0] != null)
+      {
+         Assertions.fail(failure[0]);
+      }
+   }
+
+   private static class Sample implements InPlaceCopyable<Sample>
+   {
+      private static final long serialVersionUID = 1L;
+
+      private double position;
+      private double velocity;
+
+      public void set(double value)
+      {
+         position = value;
+         velocity = -2.0 * value;
+      }
+
+      public void check()
+      {
+         Assertions.assertEquals(-2.0 * position, velocity, 1e-9);
+      }
+
+      @Override
+      public void copyFrom(Sample src)
+      {
+         position = src.position;
+         velocity = src.velocity;
+      }
+   }
+}